@@ -0,0 +1,153 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+
+// Reads another stream on its own thread and hands the bytes over in blocks through a bounded queue.
+// This lets slow work inside the source stream (like decompression) run at the same time as the interpreter.
+public class BackgroundInputStream extends InputStream
+{
+	private static final int BLOCK_SIZE = 64 * 1024;
+	private static final int BLOCK_COUNT = 4;
+	
+	private static class Block
+	{
+		private byte[] data = new byte[BLOCK_SIZE];
+		// Number of valid bytes in data, -1 marks the end of the source.
+		private int length;
+	}
+	
+	private InputStream source;
+	// Blocks go back and forth between these two queues so no new blocks are made after the constructor.
+	private ArrayBlockingQueue<Block> filledBlocks;
+	private ArrayBlockingQueue<Block> emptyBlocks;
+	private Thread reader;
+	// Set by the reader thread before it sends the end block when the source fails.
+	private volatile IOException failure;
+	
+	private Block current;
+	private int position;
+	private boolean endOfInput;
+	
+	public BackgroundInputStream(InputStream source, String threadName)
+	{
+		this.source = source;
+		filledBlocks = new ArrayBlockingQueue<Block>(BLOCK_COUNT);
+		emptyBlocks = new ArrayBlockingQueue<Block>(BLOCK_COUNT);
+		
+		for (int i = 0; i < BLOCK_COUNT; i++)
+			emptyBlocks.add(new Block());
+		
+		reader = new Thread(this::ReadSource, threadName);
+		// Does not keep the program alive once the interpreter is done.
+		reader.setDaemon(true);
+		reader.start();
+	}
+	
+	public int read() throws IOException
+	{
+		byte[] single = new byte[1];
+		
+		if (read(single, 0, 1) == -1)
+			return -1;
+		
+		return single[0] & 0xFF;
+	}
+	
+	public int read(byte[] bytes, int offset, int length) throws IOException
+	{
+		if (endOfInput)
+			return -1;
+		
+		if (length == 0)
+			return 0;
+		
+		try
+		{
+			// Waits for the reader thread when the last block has been used up.
+			if (current == null)
+			{
+				current = filledBlocks.take();
+				position = 0;
+				
+				if (current.length == -1)
+				{
+					endOfInput = true;
+					
+					if (failure != null)
+						throw failure;
+					
+					return -1;
+				}
+			}
+			
+			int count = Math.min(length, current.length - position);
+			System.arraycopy(current.data, position, bytes, offset, count);
+			position += count;
+			
+			// Gives the block back to the reader thread once all of it has been read.
+			if (position == current.length)
+			{
+				emptyBlocks.put(current);
+				current = null;
+			}
+			
+			return count;
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for input.");
+		}
+	}
+	
+	public void close() throws IOException
+	{
+		reader.interrupt();
+		source.close();
+	}
+	
+	// Runs on the reader thread, filling empty blocks from the source until it runs out.
+	private void ReadSource()
+	{
+		Block block = null;
+		
+		try
+		{
+			while (true)
+			{
+				block = emptyBlocks.take();
+				block.length = source.readNBytes(block.data, 0, BLOCK_SIZE);
+				
+				if (block.length == 0)
+					break;
+				
+				filledBlocks.put(block);
+				block = null;
+			}
+		}
+		catch (IOException e)
+		{
+			failure = e;
+		}
+		catch (InterruptedException e)
+		{
+			// The stream was closed so nobody is waiting for the end block.
+			return;
+		}
+		
+		// Sends the end block, this is also how a failure gets reported to the reading side.
+		try
+		{
+			if (block == null)
+				block = emptyBlocks.take();
+			
+			block.length = -1;
+			filledBlocks.put(block);
+		}
+		catch (InterruptedException e)
+		{
+			return;
+		}
+	}
+}
@@ -0,0 +1,111 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Lets bytes in a buffer be used as characters (one byte per character) without decoding them into a String.
+// This is how regular expressions get run directly over the input buffer, and how ASCII records get used without decoding them.
+public class ByteCharSequence implements CharSequence
+{
+	private ByteBuffer bytes;
+	private int offset;
+	private int length;
+	// Sequences made by subSequence read through the sequence that owns the bytes, so they stay valid when it gets detached.
+	private ByteCharSequence source;
+	
+	public ByteCharSequence(ByteBuffer bytes, int offset, int length)
+	{
+		this.bytes = bytes;
+		this.offset = offset;
+		this.length = length;
+	}
+	
+	// Makes a sequence of length characters starting at offset in source.
+	private ByteCharSequence(ByteCharSequence source, int offset, int length)
+	{
+		this.source = source;
+		this.offset = offset;
+		this.length = length;
+	}
+	
+	public int length()
+	{
+		return length;
+	}
+	
+	public char charAt(int index)
+	{
+		if (index < 0 || index >= length)
+			throw new IndexOutOfBoundsException("Index " + index + " is outside of a sequence with length " + length + ".");
+		
+		if (source != null)
+			return source.charAt(offset + index);
+		
+		return (char) (bytes.get(offset + index) & 0xFF);
+	}
+	
+	public CharSequence subSequence(int start, int end)
+	{
+		if (start < 0 || end > length || start > end)
+			throw new IndexOutOfBoundsException("Range " + start + " to " + end + " is outside of a sequence with length " + length + ".");
+		
+		if (source != null)
+			return new ByteCharSequence(source, offset + start, end - start);
+		
+		return new ByteCharSequence(this, start, end - start);
+	}
+	
+	// Latin-1 Strings are stored one byte per character, so this is a single copy of the bytes.
+	public String toString()
+	{
+		if (source != null)
+			return source.ToString(offset, length);
+		
+		return ToString(0, length);
+	}
+	
+	// Makes a String from length characters starting at start, only called on the sequence that owns the bytes.
+	private String ToString(int start, int length)
+	{
+		int offset = this.offset + start;
+		
+		if (bytes.hasArray())
+			return new String(bytes.array(), bytes.arrayOffset() + offset, length, StandardCharsets.ISO_8859_1);
+		
+		byte[] copy = new byte[length];
+		bytes.get(offset, copy, 0, length);
+		return new String(copy, StandardCharsets.ISO_8859_1);
+	}
+	
+	// Copies the bytes out of the buffer so the sequence (and anything made by subSequence) stays the same after the buffer gets reused.
+	public void Detach()
+	{
+		if (source != null)
+		{
+			source.Detach();
+			return;
+		}
+		
+		byte[] copy = new byte[length];
+		bytes.get(offset, copy, 0, length);
+		bytes = ByteBuffer.wrap(copy);
+		offset = 0;
+	}
+	
+	// Returns the index of the first target byte at or after from, or -1 when there is none.
+	public int IndexOf(byte target, int from)
+	{
+		return IndexOf(target, from, length);
+	}
+	
+	// Searches between from and to (relative to this sequence) using the scanner on the buffer that owns the bytes.
+	private int IndexOf(byte target, int from, int to)
+	{
+		int found;
+		
+		if (source != null)
+			found = source.IndexOf(target, offset + from, offset + to);
+		else
+			found = ByteScanner.IndexOf(bytes, offset + from, offset + to, target);
+		
+		return found == -1 ? -1 : found - offset;
+	}
+}
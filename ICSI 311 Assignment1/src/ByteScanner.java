@@ -0,0 +1,58 @@
+import java.nio.ByteBuffer;
+
+/*
+ * Scans buffers of input bytes eight at a time by reading them as a long and testing every byte of it at once.
+ * This does the same job as a vector search for a separator byte but only needs plain Java, a byte at a time
+ * loop is only used for the few bytes at the end that do not fill a long.
+ */
+public class ByteScanner
+{
+	private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+	private static final long HIGH_BITS = 0x8080808080808080L;
+	private static final long ONES = 0x0101010101010101L;
+	
+	// Returns the index of the first target byte between from and to, or -1 when there is none.
+	public static int IndexOf(ByteBuffer bytes, int from, int to, byte target)
+	{
+		long pattern = (target & 0xFFL) * ONES;
+		int i = from;
+		
+		for (; i + Long.BYTES <= to; i += Long.BYTES)
+		{
+			// Bytes that match the target become zero, then each zero byte gets its high bit set.
+			// This version never carries between bytes, so only real matches are marked.
+			long word = bytes.getLong(i) ^ pattern;
+			long zeros = ~(((word & LOW_BITS) + LOW_BITS) | word | LOW_BITS);
+			
+			// getLong reads big endian, so the first byte in the buffer is the highest byte of the long.
+			if (zeros != 0)
+				return i + (Long.numberOfLeadingZeros(zeros) >>> 3);
+		}
+		
+		for (; i < to; i++)
+		{
+			if (bytes.get(i) == target)
+				return i;
+		}
+		return -1;
+	}
+	
+	// Returns true when every byte between start and end is ASCII, which reads the same as UTF-8 or Latin-1.
+	public static boolean IsAscii(ByteBuffer bytes, int start, int end)
+	{
+		int i = start;
+		
+		for (; i + Long.BYTES <= end; i += Long.BYTES)
+		{
+			if ((bytes.getLong(i) & HIGH_BITS) != 0)
+				return false;
+		}
+		
+		for (; i < end; i++)
+		{
+			if (bytes.get(i) < 0)
+				return false;
+		}
+		return true;
+	}
+}
@@ -2,10 +2,30 @@
 public class ConstantNode extends Node
 {
 	private String value;
+	// The value the interpreter hands out every time the constant is used, made once here instead of on every evaluation.
+	private InterpreterDataType constantValue;
 	
+	// A string literal, it keeps its text exactly as written.
 	public ConstantNode(String value)
 	{
 		this.value = value;
+		constantValue = new InterpreterDataType(value).ReadOnly();
+	}
+	
+	// A number literal is held as a number, so it goes through CONVFMT like any other number when it is used as a String.
+	public ConstantNode(String value, boolean number)
+	{
+		this.value = value;
+		
+		NumberParser parser = new NumberParser();
+		parser.Parse(value);
+		
+		if (!number || !parser.isWhole())
+			constantValue = new InterpreterDataType(value).ReadOnly();
+		else if (parser.isIntegral())
+			constantValue = new InterpreterDataType(parser.getInteger()).ReadOnly();
+		else
+			constantValue = new InterpreterDataType(parser.getNumber()).ReadOnly();
 	}
 	
 	public String getConstantValue()
@@ -13,6 +33,11 @@ public class ConstantNode extends Node
 		return value;
 	}
 	
+	public InterpreterDataType getValue()
+	{
+		return constantValue;
+	}
+	
 	// Does the same as getConstantValue but implemented for simplicity sake and readability.
 	public String toString()
 	{
@@ -0,0 +1,431 @@
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Splits records into fields based on the value of FS (or FIELDWIDTHS), worked out once for each value instead of once for each record.
+// CSV input is split by a state machine that follows the quoting rules of RFC 4180.
+// Only an FS that really is a regular expression uses a Pattern, everything else gets scanned by hand.
+public class FieldSplitter
+{
+	// WHITESPACE is the default FS of a single space, EACH_CHARACTER is FS = "" where every character is its own field.
+	// FIXED_WIDTH cuts fields at the column widths listed in FIELDWIDTHS.
+	public enum Modes {WHITESPACE, CHARACTER, LITERAL, REGEX, EACH_CHARACTER, FIXED_WIDTH, CSV}
+	// Where the way of splitting comes from, SEPARATED is a normal FS.
+	public enum Formats {SEPARATED, FIXED_WIDTH, CSV}
+	
+	private static final String REGEX_CHARACTERS = "\\^$.|?*+()[]{}";
+	
+	private String fieldSeparator;
+	private boolean paragraph;
+	private Formats format;
+	private Modes mode;
+	private char character;
+	private String literal;
+	private Pattern pattern;
+	// Width of each field in FIXED_WIDTH mode, -1 for a last field that takes the rest of the record.
+	private int[] widths;
+	
+	// Where each field of the last split record starts and ends.
+	private int[] starts;
+	private int[] ends;
+	// The text of each CSV field that had doubled quotes in it, null for fields that are just a piece of the record.
+	private String[] values;
+	private int count;
+	// Splitting stops after this many fields, the program is known to never look past them.
+	private int limit;
+	
+	public FieldSplitter(String fieldSeparator, boolean paragraph)
+	{
+		this(fieldSeparator, paragraph, Formats.SEPARATED);
+	}
+	
+	// For FIXED_WIDTH, fieldSeparator is the value of FIELDWIDTHS instead of FS.
+	public FieldSplitter(String fieldSeparator, boolean paragraph, Formats format)
+	{
+		this.fieldSeparator = fieldSeparator;
+		this.paragraph = paragraph;
+		this.format = format;
+		starts = new int[16];
+		ends = new int[16];
+		limit = Integer.MAX_VALUE;
+		
+		if (format == Formats.FIXED_WIDTH)
+		{
+			mode = Modes.FIXED_WIDTH;
+			widths = ParseWidths(fieldSeparator);
+		}
+		
+		// CSV separates with commas unless FS is set to some other single character, like a semicolon.
+		else if (format == Formats.CSV)
+		{
+			mode = Modes.CSV;
+			character = fieldSeparator.length() == 1 && !fieldSeparator.equals(" ") ? fieldSeparator.charAt(0) : ',';
+			values = new String[16];
+		}
+		
+		else if (fieldSeparator.equals(" "))
+			mode = Modes.WHITESPACE;
+		
+		else if (fieldSeparator.isEmpty())
+			mode = Modes.EACH_CHARACTER;
+		
+		// A single character is always taken literally, even one that means something in a regular expression.
+		else if (fieldSeparator.length() == 1)
+		{
+			mode = Modes.CHARACTER;
+			character = fieldSeparator.charAt(0);
+		}
+		
+		// In paragraph mode newlines always separate fields as well, which is easiest to do as part of a regular expression.
+		else if (!paragraph && IsLiteral(fieldSeparator))
+		{
+			mode = Modes.LITERAL;
+			literal = fieldSeparator;
+		}
+		
+		else
+		{
+			mode = Modes.REGEX;
+			pattern = Pattern.compile(paragraph ? "(?:" + fieldSeparator + ")|\n" : fieldSeparator);
+		}
+	}
+	
+	// Returns true when this splitter was made for the given FS, so it can be used again.
+	public boolean Matches(String fieldSeparator, boolean paragraph, Formats format)
+	{
+		return this.paragraph == paragraph && this.format == format && this.fieldSeparator.equals(fieldSeparator);
+	}
+	
+	public void setLimit(int limit)
+	{
+		this.limit = limit;
+	}
+	
+	public Modes getMode()
+	{
+		return mode;
+	}
+	
+	public int getCount()
+	{
+		return count;
+	}
+	
+	public int getStart(int field)
+	{
+		return starts[field];
+	}
+	
+	public int getEnd(int field)
+	{
+		return ends[field];
+	}
+	
+	// Returns the unquoted text of a CSV field when it is not just the characters between getStart and getEnd.
+	public String getValue(int field)
+	{
+		if (values == null)
+			return null;
+		
+		return values[field];
+	}
+	
+	// Finds the fields of record (up to the limit), returning how many there are. An empty record never has any fields.
+	public int Split(CharSequence record)
+	{
+		count = 0;
+		int length = record.length();
+		
+		if (length == 0 || limit == 0)
+			return 0;
+		
+		if (mode == Modes.WHITESPACE)
+			SplitWhitespace(record, length);
+		
+		else if (mode == Modes.CHARACTER)
+			SplitCharacter(record, length);
+		
+		else if (mode == Modes.LITERAL)
+			SplitLiteral(record, length);
+		
+		else if (mode == Modes.FIXED_WIDTH)
+			SplitFixedWidth(length);
+		
+		else if (mode == Modes.CSV)
+			SplitCsv(record, length);
+		
+		else if (mode == Modes.EACH_CHARACTER)
+		{
+			for (int i = 0; i < length; i++)
+			{
+				if (!AddField(i, i + 1))
+					return count;
+			}
+		}
+		
+		else
+			SplitPattern(record, length);
+		
+		return count;
+	}
+	
+	// Walks the record once, runs of blanks separate fields and blanks at the start and end of the record are ignored.
+	private void SplitWhitespace(CharSequence record, int length)
+	{
+		// Where the field being read started, -1 while between fields.
+		int start = -1;
+		
+		for (int i = 0; i < length; i++)
+		{
+			if (!IsBlank(record.charAt(i)))
+			{
+				if (start == -1)
+					start = i;
+			}
+			else if (start != -1)
+			{
+				if (!AddField(start, i))
+					return;
+				start = -1;
+			}
+		}
+		
+		if (start != -1)
+			AddField(start, length);
+	}
+	
+	// Every separator ends a field, so separators next to each other or at either end make empty fields.
+	private void SplitCharacter(CharSequence record, int length)
+	{
+		// Records still in the input buffer can be scanned eight bytes at a time.
+		if (record instanceof ByteCharSequence && character < 128 && !paragraph)
+		{
+			SplitBytes((ByteCharSequence) record, length);
+			return;
+		}
+		
+		int start = 0;
+		
+		for (int i = 0; i < length; i++)
+		{
+			char current = record.charAt(i);
+			
+			if (current == character || (paragraph && current == '\n'))
+			{
+				if (!AddField(start, i))
+					return;
+				start = i + 1;
+			}
+		}
+		AddField(start, length);
+	}
+	
+	private void SplitBytes(ByteCharSequence record, int length)
+	{
+		int start = 0;
+		int found;
+		
+		while ((found = record.IndexOf((byte) character, start)) != -1)
+		{
+			if (!AddField(start, found))
+				return;
+			start = found + 1;
+		}
+		AddField(start, length);
+	}
+	
+	private void SplitLiteral(CharSequence record, int length)
+	{
+		int start = 0;
+		int last = length - literal.length();
+		char first = literal.charAt(0);
+		
+		for (int i = 0; i <= last; i++)
+		{
+			if (record.charAt(i) == first && StartsWith(record, i))
+			{
+				if (!AddField(start, i))
+					return;
+				start = i + literal.length();
+				i = start - 1;
+			}
+		}
+		AddField(start, length);
+	}
+	
+	// Fields past the end of the record are left out, and the last one can be cut short.
+	private void SplitFixedWidth(int length)
+	{
+		int start = 0;
+		
+		for (int i = 0; i < widths.length && start < length; i++)
+		{
+			int end = widths[i] == -1 ? length : Math.min(start + widths[i], length);
+			
+			if (!AddField(start, end))
+				return;
+			start = end;
+		}
+	}
+	
+	/*
+	 * Goes through the record once, a field that starts with a quote runs until the quote that closes it.
+	 * Separators and newlines inside quotes are part of the field and two quotes in a row stand for one quote.
+	 * The start and end of a quoted field leave out its quotes, so only fields with doubled quotes need their own String.
+	 */
+	private void SplitCsv(CharSequence record, int length)
+	{
+		int i = 0;
+		
+		while (true)
+		{
+			int start = i;
+			int end;
+			StringBuilder unquoted = null;
+			
+			if (i < length && record.charAt(i) == '"')
+			{
+				i++;
+				start = i;
+				
+				while (i < length)
+				{
+					char current = record.charAt(i);
+					
+					if (current == '"')
+					{
+						// A doubled quote is a quote in the text, anything else closes the field.
+						if (i + 1 < length && record.charAt(i + 1) == '"')
+						{
+							if (unquoted == null)
+								unquoted = new StringBuilder().append(record, start, i);
+							unquoted.append('"');
+							i += 2;
+							continue;
+						}
+						break;
+					}
+					
+					if (unquoted != null)
+						unquoted.append(current);
+					i++;
+				}
+				end = i;
+				
+				// Anything between the closing quote and the separator is left out.
+				while (i < length && record.charAt(i) != character)
+					i++;
+			}
+			else
+			{
+				while (i < length && record.charAt(i) != character)
+					i++;
+				end = i;
+			}
+			
+			boolean more = AddField(start, end);
+			values[count - 1] = unquoted == null ? null : unquoted.toString();
+			
+			if (!more || i >= length)
+				return;
+			
+			// Moves past the separator, a separator at the very end still makes an empty last field.
+			i++;
+		}
+	}
+	
+	private void SplitPattern(CharSequence record, int length)
+	{
+		Matcher matcher = pattern.matcher(record);
+		int start = 0;
+		
+		while (matcher.find())
+		{
+			// A separator has to match something, otherwise it would split between every character.
+			if (matcher.end() == matcher.start())
+				continue;
+			
+			if (!AddField(start, matcher.start()))
+				return;
+			start = matcher.end();
+		}
+		AddField(start, length);
+	}
+	
+	private boolean StartsWith(CharSequence record, int offset)
+	{
+		for (int i = 1; i < literal.length(); i++)
+		{
+			if (record.charAt(offset + i) != literal.charAt(i))
+				return false;
+		}
+		return true;
+	}
+	
+	// Returns false once the limit is reached and there is no point in looking for more fields.
+	private boolean AddField(int start, int end)
+	{
+		if (count == starts.length)
+		{
+			int[] largerStarts = new int[count * 2];
+			int[] largerEnds = new int[count * 2];
+			System.arraycopy(starts, 0, largerStarts, 0, count);
+			System.arraycopy(ends, 0, largerEnds, 0, count);
+			starts = largerStarts;
+			ends = largerEnds;
+			
+			if (values != null)
+				values = Arrays.copyOf(values, count * 2);
+		}
+		
+		starts[count] = start;
+		ends[count] = end;
+		count++;
+		return count < limit;
+	}
+	
+	// FIELDWIDTHS is a list of positive widths separated by blanks, the last one can be * to take the rest of the record.
+	private static int[] ParseWidths(String fieldWidths)
+	{
+		String[] values = fieldWidths.trim().split("[ \t]+");
+		int[] widths = new int[values.length];
+		
+		for (int i = 0; i < values.length; i++)
+		{
+			if (values[i].equals("*") && i == values.length - 1)
+			{
+				widths[i] = -1;
+				continue;
+			}
+			
+			try
+			{
+				widths[i] = Integer.parseInt(values[i]);
+			}
+			catch (NumberFormatException e)
+			{
+				widths[i] = 0;
+			}
+			
+			if (widths[i] <= 0)
+				throw new IllegalArgumentException("Invalid FIELDWIDTHS value: \"" + fieldWidths + "\" must be a list of positive widths.");
+		}
+		return widths;
+	}
+	
+	private static boolean IsBlank(char character)
+	{
+		return character == ' ' || character == '\t' || character == '\n';
+	}
+	
+	// Returns true when the separator has nothing in it that a regular expression would treat specially.
+	private static boolean IsLiteral(String fieldSeparator)
+	{
+		for (int i = 0; i < fieldSeparator.length(); i++)
+		{
+			if (REGEX_CHARACTERS.indexOf(fieldSeparator.charAt(i)) != -1)
+				return false;
+		}
+		return true;
+	}
+}
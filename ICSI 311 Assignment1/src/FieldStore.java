@@ -0,0 +1,193 @@
+import java.util.Arrays;
+
+// Holds $0 and the fields of the current record by their number instead of as "$n" keys in the global variables.
+// The array is kept from one record to the next and clearing it only resets the count, so each record costs the same no matter how many globals there are.
+public class FieldStore
+{
+	private static final int INITIAL_CAPACITY = 16;
+	
+	// A field value that tells the store when the program assigns to it, so $0 and the fields can be brought back in line.
+	private class Field extends RecordDataType
+	{
+		private int index;
+		
+		private Field(int index, CharSequence view)
+		{
+			super(view);
+			this.index = index;
+		}
+		
+		public void setType(String type)
+		{
+			super.setType(type);
+			
+			// A new $0 makes the old fields wrong, a new field makes the old $0 wrong.
+			if (index == 0)
+			{
+				recordChanged = true;
+				fieldsChanged = false;
+				highestChanged = 0;
+			}
+			else
+			{
+				fieldsChanged = true;
+				highestChanged = Math.max(highestChanged, index);
+			}
+		}
+	}
+	
+	// Index 0 is $0, index n is $n.
+	private InterpreterDataType[] fields;
+	// A slot only belongs to the current record when its stamp matches the generation, Clear moves to a new generation.
+	private int[] stamps;
+	private int generation;
+	// Number of slots that belong to the current record.
+	private int count;
+	
+	// Fields found by the splitter only get a value made for them when they are asked for, as a view of the record.
+	private CharSequence record;
+	private FieldSplitter splitter;
+	private int splitCount;
+	
+	// Set when $0 was assigned since the fields were split, or when a field was assigned since $0 was made.
+	private boolean recordChanged;
+	private boolean fieldsChanged;
+	// The highest field assigned since $0 was made, assigning past NF adds fields.
+	private int highestChanged;
+	
+	public FieldStore()
+	{
+		fields = new InterpreterDataType[INITIAL_CAPACITY];
+		stamps = new int[INITIAL_CAPACITY];
+		generation = 1;
+		count = 0;
+	}
+	
+	// Forgets every field so the next record starts empty.
+	public void Clear()
+	{
+		NextGeneration();
+		record = null;
+		splitter = null;
+		splitCount = 0;
+		recordChanged = false;
+		fieldsChanged = false;
+		highestChanged = 0;
+	}
+	
+	// Makes record the value of $0 without marking it as assigned, the fields are left alone.
+	public void SetRecord(CharSequence record)
+	{
+		Set(0, new Field(0, record));
+		recordChanged = false;
+		fieldsChanged = false;
+		highestChanged = 0;
+	}
+	
+	// Uses the fields the splitter found in record as $1 onwards, replacing any fields from before.
+	public void Split(CharSequence record, FieldSplitter splitter)
+	{
+		InterpreterDataType whole = Contains(0) ? fields[0] : null;
+		NextGeneration();
+		if (whole != null)
+			Set(0, whole);
+		
+		this.record = record;
+		this.splitter = splitter;
+		splitCount = splitter.getCount();
+		count = Math.max(count, splitCount + 1);
+		recordChanged = false;
+		fieldsChanged = false;
+		highestChanged = 0;
+	}
+	
+	// Drops every field after fieldCount, this is what assigning a smaller NF does.
+	public void Truncate(int fieldCount)
+	{
+		for (int i = fieldCount + 1; i < count; i++)
+			stamps[i] = 0;
+		
+		count = Math.min(count, fieldCount + 1);
+		splitCount = Math.min(splitCount, fieldCount);
+		highestChanged = Math.min(highestChanged, fieldCount);
+	}
+	
+	// Marks $0 as needing to be rebuilt from the fields, for changes that do not come from assigning a field.
+	public void MarkFieldsChanged()
+	{
+		fieldsChanged = true;
+	}
+	
+	public boolean isRecordChanged()
+	{
+		return recordChanged;
+	}
+	
+	public boolean isFieldsChanged()
+	{
+		return fieldsChanged;
+	}
+	
+	public int getHighestChanged()
+	{
+		return highestChanged;
+	}
+	
+	public boolean Contains(int index)
+	{
+		if (index >= 1 && index <= splitCount)
+			return true;
+		
+		return index >= 0 && index < count && stamps[index] == generation;
+	}
+	
+	// Returns the field at index, making an empty one like AWK does when it has not been set.
+	public InterpreterDataType Get(int index)
+	{
+		if (index < 0)
+			throw new IllegalArgumentException("Field reference $" + index + " can not be negative.");
+		
+		if (index < count && stamps[index] == generation)
+			return fields[index];
+		
+		InterpreterDataType value;
+		if (index >= 1 && index <= splitCount && splitter.getValue(index - 1) != null)
+			value = new Field(index, splitter.getValue(index - 1));
+		else if (index >= 1 && index <= splitCount)
+			value = new Field(index, record.subSequence(splitter.getStart(index - 1), splitter.getEnd(index - 1)));
+		else
+			value = new Field(index, "");
+		
+		Set(index, value);
+		return value;
+	}
+	
+	public void Set(int index, InterpreterDataType value)
+	{
+		if (index >= fields.length)
+		{
+			int capacity = Math.max(index + 1, fields.length * 2);
+			fields = Arrays.copyOf(fields, capacity);
+			stamps = Arrays.copyOf(stamps, capacity);
+		}
+		
+		fields[index] = value;
+		stamps[index] = generation;
+		count = Math.max(count, index + 1);
+	}
+	
+	// Moves every slot out of the current record at once.
+	private void NextGeneration()
+	{
+		generation++;
+		
+		// Starts the stamps over long before they could wrap around to an old generation.
+		if (generation == Integer.MAX_VALUE)
+		{
+			Arrays.fill(stamps, 0);
+			generation = 1;
+		}
+		
+		count = 0;
+	}
+}
@@ -0,0 +1,238 @@
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Optional;
+
+// Looks through the whole program before it runs to find the highest field it can ever read.
+// When every field reference is a constant like $1 or $4, records never have to be split any further than that.
+// Given the column names from a header, it also turns every $"name" into the number of that column along the way.
+public class FieldUsage
+{
+	private int highestField;
+	// Set when the program uses NF, a computed field like $i, or assigns a field (which rebuilds $0 from all of them).
+	private boolean allFields;
+	// Functions that can change a field passed to them.
+	private HashSet<String> writingFunctions;
+	// The columns of the header in order, null when the input has no header.
+	private List<String> columnNames;
+	private NumberParser parser = new NumberParser();
+	
+	public FieldUsage(ProgramNode program)
+	{
+		this(program, null);
+	}
+	
+	public FieldUsage(ProgramNode program, List<String> columnNames)
+	{
+		this.columnNames = columnNames;
+		highestField = 0;
+		allFields = false;
+		writingFunctions = new HashSet<String>();
+		writingFunctions.add("sub");
+		writingFunctions.add("gsub");
+		
+		// User functions get their parameters by reference, so they could assign a field passed to them.
+		for (FunctionDefinitionNode function : program.getFunctionDefinitionNode())
+			writingFunctions.add(function.getFunctionName());
+		
+		for (FunctionDefinitionNode function : program.getFunctionDefinitionNode())
+			VisitStatements(function.getStatements());
+		
+		VisitBlocks(program.getBeginBlocks());
+		VisitBlocks(program.getBlocks());
+		VisitBlocks(program.getEndBlocks());
+	}
+	
+	// Returns how many fields a record has to be split into, Integer.MAX_VALUE when it has to be all of them.
+	public int getFieldLimit()
+	{
+		if (allFields)
+			return Integer.MAX_VALUE;
+		
+		return highestField;
+	}
+	
+	private void VisitBlocks(LinkedList<BlockNode> blocks)
+	{
+		for (BlockNode block : blocks)
+			VisitBlock(block);
+	}
+	
+	private void VisitBlock(BlockNode block)
+	{
+		if (block == null)
+			return;
+		
+		VisitOptional(block.getCondition());
+		VisitStatements(block.getStatements());
+	}
+	
+	private void VisitStatements(LinkedList<StatementNode> statements)
+	{
+		for (StatementNode statement : statements)
+			Visit(statement);
+	}
+	
+	private void VisitOptional(Optional<Node> node)
+	{
+		if (node.isPresent())
+			Visit(node.get());
+	}
+	
+	private void Visit(Node node)
+	{
+		if (node == null)
+			return;
+		
+		if (node instanceof OperationNode)
+		{
+			OperationNode operation = (OperationNode) node;
+			
+			if (operation.getOperation() == OperationNode.operations.DOLLAR)
+				VisitField(operation);
+			
+			Visit(operation.getLeftNode());
+			VisitOptional(operation.getRightNode());
+		}
+		
+		else if (node instanceof VariableReferenceNode)
+		{
+			VariableReferenceNode variable = (VariableReferenceNode) node;
+			
+			if (variable.getName().equals("NF"))
+				allFields = true;
+			
+			VisitOptional(variable.getIndex());
+		}
+		
+		else if (node instanceof AssignmentNode)
+		{
+			AssignmentNode assignment = (AssignmentNode) node;
+			
+			if (IsField(assignment.getTarget()))
+				allFields = true;
+			
+			Visit(assignment.getTarget());
+			Visit(assignment.getExpression());
+		}
+		
+		else if (node instanceof FunctionCallNode)
+		{
+			FunctionCallNode call = (FunctionCallNode) node;
+			
+			for (Node parameter : call.getParameters())
+			{
+				if (writingFunctions.contains(call.getName()) && IsField(parameter))
+					allFields = true;
+				
+				Visit(parameter);
+			}
+		}
+		
+		else if (node instanceof TernaryNode)
+		{
+			TernaryNode ternary = (TernaryNode) node;
+			Visit(ternary.getExpression());
+			Visit(ternary.getTrueCase());
+			Visit(ternary.getFalseCase());
+		}
+		
+		else if (node instanceof IfNode)
+		{
+			// Goes down the chain of else ifs.
+			for (IfNode current = (IfNode) node; current != null; current = current.getNextIf())
+			{
+				VisitOptional(current.getCondition());
+				VisitBlock(current.getStatements());
+			}
+		}
+		
+		else if (node instanceof ForNode)
+		{
+			ForNode loop = (ForNode) node;
+			Visit(loop.getInitialization());
+			Visit(loop.getCondition());
+			Visit(loop.getIncrement());
+			VisitBlock(loop.getStatements());
+		}
+		
+		else if (node instanceof ForEachNode)
+		{
+			ForEachNode loop = (ForEachNode) node;
+			Visit(loop.getArrayMembershipCondition());
+			VisitBlock(loop.getStatements());
+		}
+		
+		else if (node instanceof WhileNode)
+		{
+			WhileNode loop = (WhileNode) node;
+			Visit(loop.getCondition());
+			VisitBlock(loop.getStatements());
+		}
+		
+		else if (node instanceof DoWhileNode)
+		{
+			DoWhileNode loop = (DoWhileNode) node;
+			Visit(loop.getCondition());
+			VisitBlock(loop.getStatements());
+		}
+		
+		else if (node instanceof ReturnNode)
+			Visit(((ReturnNode) node).getReturnExpression());
+		
+		else if (node instanceof DeleteNode)
+		{
+			Optional<LinkedList<Node>> index = ((DeleteNode) node).getIndex();
+			
+			if (index.isPresent())
+			{
+				for (Node indexNode : index.get())
+					Visit(indexNode);
+			}
+		}
+	}
+	
+	// Keeps track of the highest constant field, anything else could be any field.
+	private void VisitField(OperationNode field)
+	{
+		Node index = field.getLeftNode();
+		
+		if (index instanceof ConstantNode)
+		{
+			String value = ((ConstantNode) index).getConstantValue();
+			parser.Parse(value);
+			
+			if (parser.isWhole())
+			{
+				highestField = Math.max(highestField, (int) parser.getNumber());
+				return;
+			}
+			
+			if (columnNames == null)
+			{
+				allFields = true;
+				return;
+			}
+			
+			// A name is only looked up here, every record after this reads the field by its number.
+			int column = columnNames.indexOf(value) + 1;
+			if (column == 0)
+				throw new IllegalArgumentException("Column \"" + value + "\" is not in the header.");
+			
+			field.setLeftNode(new ConstantNode(NumberConverter.FormatInteger(column), true));
+			highestField = Math.max(highestField, column);
+		}
+		else
+			allFields = true;
+	}
+	
+	// Returns true for a reference to a field other than $0.
+	private boolean IsField(Node node)
+	{
+		if (!(node instanceof OperationNode) || ((OperationNode) node).getOperation() != OperationNode.operations.DOLLAR)
+			return false;
+		
+		Node index = ((OperationNode) node).getLeftNode();
+		return !(index instanceof ConstantNode) || !((ConstantNode) index).getConstantValue().equals("0");
+	}
+}
@@ -0,0 +1,265 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// Reads a file that keeps growing (like tail -f), waiting for new records once it catches up to the end of the file.
+// The byte offset and the file's record count (its FNR) get saved to a small state file so a restart picks up where the last run stopped.
+// A file that gets truncated or replaced by a smaller one, like log rotation does, is read again from the start.
+public class FollowRecordReader extends RecordReader
+{
+	private static final long POLL_INTERVAL_MILLISECONDS = 200;
+	private static final long SAVE_INTERVAL_NANOSECONDS = 1000000000L;
+	
+	// Thrown out of the stream so NextRecord can drop the records of the old file and start over.
+	private static class TruncatedException extends IOException
+	{
+		private TruncatedException()
+		{
+			super("Followed file was truncated.");
+		}
+	}
+	
+	// Reads from the file channel and waits for the file to grow instead of ending.
+	private class FollowInputStream extends InputStream
+	{
+		public int read() throws IOException
+		{
+			byte[] single = new byte[1];
+			
+			if (read(single, 0, 1) == -1)
+				return -1;
+			
+			return single[0] & 0xFF;
+		}
+		
+		public int read(byte[] bytes, int offset, int length) throws IOException
+		{
+			while (true)
+			{
+				int read = channel.read(ByteBuffer.wrap(bytes, offset, length));
+				
+				if (read > 0)
+					return read;
+				
+				// A file that got smaller was truncated or replaced, so the saved offset no longer means anything.
+				if (isTruncated())
+					throw new TruncatedException();
+				
+				// Caught up to the end of the file, saves how far the program got before waiting for more.
+				if (checkpointOffset != savedOffset)
+					SaveState();
+				
+				try
+				{
+					Thread.sleep(POLL_INTERVAL_MILLISECONDS);
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while following " + path + ".");
+				}
+			}
+		}
+	}
+	
+	private Path path;
+	private Path statePath;
+	private FileChannel channel;
+	private StreamRecordReader records;
+	// Offset in the file where this run started reading.
+	private long startOffset;
+	private long savedRecordNumber;
+	
+	// The offset and record count of the last record the program finished with, and the ones last written to the state file.
+	private long checkpointOffset;
+	private long checkpointRecordNumber;
+	private long savedOffset;
+	private long lastSaveTime;
+	// Set when the file started over from the beginning, until the LineManager has restarted its record count.
+	private boolean restarted;
+	
+	public FollowRecordReader(Path path) throws IOException
+	{
+		this(path, Paths.get(path.toString() + ".offset"));
+	}
+	
+	public FollowRecordReader(Path path, Path statePath) throws IOException
+	{
+		this.path = path;
+		this.statePath = statePath;
+		startOffset = 0;
+		savedRecordNumber = 0;
+		
+		// The state file holds the byte offset and record count separated by a space.
+		if (Files.exists(statePath))
+		{
+			String[] state = Files.readString(statePath).trim().split(" ");
+			if (state.length != 2)
+				throw InvalidState();
+			
+			startOffset = ParseState(state[0]);
+			savedRecordNumber = ParseState(state[1]);
+		}
+		
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+		
+		// The file was rotated since the last run, so none of it has been read yet.
+		if (channel.size() < startOffset)
+		{
+			startOffset = 0;
+			savedRecordNumber = 0;
+		}
+		
+		channel.position(startOffset);
+		records = new StreamRecordReader(new FollowInputStream());
+		
+		checkpointOffset = startOffset;
+		checkpointRecordNumber = savedRecordNumber;
+		savedOffset = startOffset;
+		lastSaveTime = System.nanoTime();
+	}
+	
+	// Returns how many records of this file the last run got through so the count can keep going from there.
+	public long getSavedRecordNumber()
+	{
+		return savedRecordNumber;
+	}
+	
+	// Returns the offset this run started reading from, more than 0 when it picked up where an earlier run stopped.
+	public long getStartOffset()
+	{
+		return startOffset;
+	}
+	
+	// Keeps the separator as well so the records of a restarted file are split the same way.
+	public void setSeparator(RecordSeparator separator)
+	{
+		super.setSeparator(separator);
+		records.setSeparator(separator);
+	}
+	
+	// Returns true once after the file started over from the beginning, so the record count can start over with it.
+	public boolean TakeRestart()
+	{
+		boolean wasRestarted = restarted;
+		restarted = false;
+		return wasRestarted;
+	}
+	
+	/*
+	 * Remembers that every record handed out so far is done and recordNumber of them came from this file.
+	 * This gets written to the state file at most once a second and whenever the reader catches up to the end of the file.
+	 */
+	public void Checkpoint(long recordNumber) throws IOException
+	{
+		checkpointOffset = startOffset + records.getOffset();
+		checkpointRecordNumber = recordNumber;
+		
+		if (System.nanoTime() - lastSaveTime >= SAVE_INTERVAL_NANOSECONDS)
+			SaveState();
+	}
+	
+	public boolean NextRecord() throws IOException
+	{
+		while (true)
+		{
+			try
+			{
+				return records.NextRecord();
+			}
+			catch (TruncatedException e)
+			{
+				Restart();
+			}
+		}
+	}
+	
+	public String GetRecord()
+	{
+		return records.GetRecord();
+	}
+	
+	public CharSequence GetRecordView()
+	{
+		return records.GetRecordView();
+	}
+	
+	public void close() throws IOException
+	{
+		SaveState();
+		channel.close();
+	}
+	
+	// Opens the file again in case it was replaced and reads it from the start, whatever was left of the old one is dropped.
+	private void Restart() throws IOException
+	{
+		channel.close();
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+		startOffset = 0;
+		records = new StreamRecordReader(new FollowInputStream());
+		records.setSeparator(separator);
+		
+		checkpointOffset = 0;
+		checkpointRecordNumber = 0;
+		SaveState();
+		restarted = true;
+	}
+	
+	// Compares against the file at the path, which is the new file after it has been replaced, not the one still open.
+	private boolean isTruncated() throws IOException
+	{
+		try
+		{
+			return Files.size(path) < channel.position();
+		}
+		catch (NoSuchFileException e)
+		{
+			// A rotated file can be gone for a moment before the new one gets made.
+			return false;
+		}
+	}
+	
+	// A state file that was cut short or edited by hand gets reported instead of guessing where to start.
+	private long ParseState(String text) throws IOException
+	{
+		long value;
+		try
+		{
+			value = Long.parseLong(text);
+		}
+		catch (NumberFormatException e)
+		{
+			throw InvalidState();
+		}
+		
+		if (value < 0)
+			throw InvalidState();
+		
+		return value;
+	}
+	
+	private IOException InvalidState()
+	{
+		return new IOException("State file " + statePath + " does not hold a byte offset and a record count.");
+	}
+	
+	// Writes to a temporary file first and moves it over the old one so a crash never leaves half a state file.
+	private void SaveState() throws IOException
+	{
+		Path temporaryPath = Paths.get(statePath.toString() + ".tmp");
+		Files.write(temporaryPath, (checkpointOffset + " " + checkpointRecordNumber + "\n").getBytes(StandardCharsets.US_ASCII));
+		Files.move(temporaryPath, statePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		
+		savedOffset = checkpointOffset;
+		lastSaveTime = System.nanoTime();
+	}
+}
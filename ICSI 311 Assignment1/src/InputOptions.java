@@ -0,0 +1,86 @@
+// Holds the command line switches that change how the interpreter reads its input.
+public class InputOptions
+{
+	// Maps regular files into memory instead of streaming them through a buffer.
+	private boolean memoryMapped;
+	// Treats every input as gzip compressed, even when the file name does not end in .gz.
+	private boolean gzip;
+	// Finds records on a separate thread ahead of the interpreter, RS can no longer change once reading has started.
+	private boolean readAhead;
+	// Waits for more records at the end of each file (like tail -f), saving the read offset next to the file.
+	private boolean follow;
+	// Reads the input as CSV, with quoted fields that can hold commas, quotes and newlines.
+	private boolean csv;
+	// Reads the first record of each file as a header, so the program can name its columns like $"price".
+	private boolean header;
+	
+	public InputOptions()
+	{
+		memoryMapped = false;
+		gzip = false;
+		readAhead = false;
+		follow = false;
+		csv = false;
+		header = false;
+	}
+	
+	public boolean isMemoryMapped()
+	{
+		return memoryMapped;
+	}
+	
+	public void setMemoryMapped(boolean memoryMapped)
+	{
+		this.memoryMapped = memoryMapped;
+	}
+	
+	public boolean isGzip()
+	{
+		return gzip;
+	}
+	
+	public void setGzip(boolean gzip)
+	{
+		this.gzip = gzip;
+	}
+	
+	public boolean isReadAhead()
+	{
+		return readAhead;
+	}
+	
+	public void setReadAhead(boolean readAhead)
+	{
+		this.readAhead = readAhead;
+	}
+	
+	public boolean isFollow()
+	{
+		return follow;
+	}
+	
+	public void setFollow(boolean follow)
+	{
+		this.follow = follow;
+	}
+	
+	public boolean isCsv()
+	{
+		return csv;
+	}
+	
+	public void setCsv(boolean csv)
+	{
+		this.csv = csv;
+	}
+	
+	public boolean isHeader()
+	{
+		return header;
+	}
+	
+	public void setHeader(boolean header)
+	{
+		this.header = header;
+	}
+}
@@ -1,76 +1,557 @@
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 public class Interpreter 
 {
 	class LineManager
 	{
-		private List<String> input;
+		// Standard input is usually a pipe from another program so it gets a larger buffer to need fewer reads.
+		private static final int STANDARD_INPUT_BUFFER_SIZE = 1024 * 1024;
+		private static final int DECOMPRESSION_BUFFER_SIZE = 64 * 1024;
 		
-		private LineManager(List<String> input)
+		private RecordReader input;
+		private InputOptions options;
+		// Files that still have to be read after the current one.
+		private LinkedList<Path> files;
+		// The first file is only opened when the first record is read, so FILENAME stays empty in BEGIN like it does in AWK.
+		private boolean opened;
+		// The next file gets opened and pre-read on this thread while the current one is being interpreted.
+		private ExecutorService prefetcher;
+		private Future<RecordReader> nextInput;
+		// The value of RS the separator was made from, it only gets rebuilt when RS changes.
+		private String recordSeparatorValue;
+		private RecordSeparator separator;
+		// Made from the value of FS (or FIELDWIDTHS) and only made again when it changes.
+		private FieldSplitter splitter;
+		// How many fields the program can ever read, found by FieldUsage before it runs.
+		private int fieldLimit = Integer.MAX_VALUE;
+		// The current record and how it gets split, kept until the fields are first needed.
+		private CharSequence record;
+		private String recordFieldSeparator;
+		private boolean recordParagraph;
+		// FIXED_WIDTH while FIELDWIDTHS is in use, recordFieldSeparator then holds its value instead of FS.
+		private FieldSplitter.Formats recordFormat;
+		private boolean fieldsSplit;
+		// Set while the next record of the current file is its header, which is read as column names instead of as a record.
+		private boolean headerPending;
+		// The column names from the header of the first file, null until a header has been read.
+		private List<String> columnNames;
+		// $0 and the fields of the current record.
+		FieldStore fields = new FieldStore();
+		// Reads NF without going through its own getNumber, which would split the record.
+		private NumberParser parser = new NumberParser();
+		
+		// NF for a record that has not been split yet, reading or assigning it splits the record first.
+		private class FieldCount extends InterpreterDataType
 		{
-			this.input = input;
+			public String getType()
+			{
+				SplitFields();
+				
+				// Assigning a field past the end adds fields.
+				if (fields.getHighestChanged() > getCount())
+					SetCount(fields.getHighestChanged());
+				
+				return super.getType();
+			}
+			
+			public double getNumber()
+			{
+				getType();
+				return super.getNumber();
+			}
+			
+			// Assigning NF drops or adds fields, so $0 has to be rebuilt.
+			public void setType(String type)
+			{
+				SplitFields();
+				super.setType(type);
+				fields.Truncate(getCount());
+				fields.MarkFieldsChanged();
+			}
+			
+			// NF is a number no matter what was assigned to it.
+			public Kinds getKind()
+			{
+				getType();
+				return Kinds.NUMBER;
+			}
+			
+			// Goes through setType so the fields still get dropped or added.
+			public void setNumber(double number, NumberConverter converter)
+			{
+				setType(conversion.Convert(number));
+			}
+			
+			public void setInteger(long integer)
+			{
+				setType(NumberConverter.FormatInteger(integer));
+			}
+			
+			private int getCount()
+			{
+				parser.Parse(super.getType());
+				return (int) parser.getNumber();
+			}
+			
+			// Sets NF without it counting as an assignment by the program.
+			private void SetCount(int count)
+			{
+				super.setType(NumberConverter.FormatInteger(count));
+			}
+		}
+		
+		private LineManager(List<Path> files, InputOptions options)
+		{
+			// A followed file never ends, so any file after it would never be read.
+			if (options.isFollow() && files.size() > 1)
+				throw new IllegalArgumentException("Only one file can be followed at a time.");
+			
+			this.files = new LinkedList<Path>(files);
+			this.options = options;
+			
+			// Only needs a background thread when there is a file to prefetch.
+			if (files.size() > 1)
+			{
+				prefetcher = Executors.newSingleThreadExecutor((task) -> 
+				{
+					Thread thread = new Thread(task, "input-prefetch");
+					// Does not keep the program alive once the interpreter is done.
+					thread.setDaemon(true);
+					return thread;
+				});
+			}
 		}
 		
 		public boolean SplitAndAssign()
 		{
-			if(!input.isEmpty())
+			if(NextRecord())
 			{
-				// Clears the existing field references in the globalVariables HashMap.
-				clearFieldReferences();
+				// Clears the fields of the last record.
+				fields.Clear();
 				
-				int numberOfFields = 0;
-				String line = input.get(0);
-				input.remove(0); // Removes the line to get the next line when this is called again.
+				// ASCII records stay as bytes in the reader's buffer, the fields get copied straight out of them.
+				record = input.GetRecordView();
+				fields.SetRecord(record);
 				
-				globalVariables.put("$0", new InterpreterDataType(line));
-				
-				// Splits the line into words based on the defined file separator.
-				String words[] = line.split(globalVariables.get("FS").getType());
-				// For each word it adds a field reference that.
-				for(int i = 0; i < words.length; i++)
-				{
-					globalVariables.put("$" + (i + 1), new InterpreterDataType(words[i]));
-					numberOfFields++;
-				}
-				// Adds the numberOfFields count to the NF variable.
-				globalVariables.put("NF", new InterpreterDataType(Integer.toString(numberOfFields)));
+				// The fields are only split once the program asks for one of them or NF, using the FS from when the record was read.
+				ReadFieldSeparator();
+				recordParagraph = separator.getMode() == RecordSeparator.Modes.PARAGRAPH;
+				fieldsSplit = false;
+				globalVariables.put("NF", new FieldCount());
 				
 				// Increment the Number of Records for each line that gets processed.
-				int lineCounter = Integer.parseInt(globalVariables.get("NR").getType());
+				// The counts are kept as numbers, they only become text if the program prints or concatenates them.
+				long lineCounter = (long) globalVariables.get("NR").getNumber();
 				lineCounter++;
-				globalVariables.put("NR", new InterpreterDataType(Integer.toString(lineCounter)));
-				// FNR will be set the same way as NR as we are most likely not working with more than one file with our implementation.
-				globalVariables.put("FNR", new InterpreterDataType(Integer.toString(lineCounter)));
+				globalVariables.put("NR", new InterpreterDataType(lineCounter));
+				// FNR is done the same way but gets reset to 0 every time a new file is opened.
+				long fileLineCounter = (long) globalVariables.get("FNR").getNumber();
+				fileLineCounter++;
+				globalVariables.put("FNR", new InterpreterDataType(fileLineCounter));
 				
 				return true;
 			}
 			return false;
 		}
 		
-		// Helper method that clears all existing field references before the next sentence to prevent lingering fields.
-		private void clearFieldReferences()
+		// Returns $index, splitting the record first if it is one of the fields or rebuilding it if a field has been assigned.
+		public InterpreterDataType GetField(int index)
+		{
+			if (index != 0)
+				SplitFields();
+			else if (fields.isFieldsChanged())
+				RebuildRecord();
+			
+			return fields.Get(index);
+		}
+		
+		// Splits the current record into fields the first time one of them is needed.
+		public void SplitFields()
+		{
+			// Assigning $0 means it has to be split again, using FS as it is now.
+			if (fields.isRecordChanged())
+			{
+				record = fields.Get(0).getSequence();
+				ReadFieldSeparator();
+				fieldsSplit = false;
+			}
+			
+			if (fieldsSplit || record == null)
+				return;
+			fieldsSplit = true;
+			
+			// Splits the line into words based on the defined file separator, only working out the splitter again when FS changes.
+			if (splitter == null || !splitter.Matches(recordFieldSeparator, recordParagraph, recordFormat))
+			{
+				splitter = new FieldSplitter(recordFieldSeparator, recordParagraph, recordFormat);
+				splitter.setLimit(fieldLimit);
+			}
+			
+			// Only the offsets of the fields are kept, a field becomes a view of the record when it is first used.
+			int numberOfFields = splitter.Split(record);
+			fields.Split(record, splitter);
+			
+			// Adds the numberOfFields count to the NF variable, which is not there yet when $0 gets assigned in BEGIN.
+			InterpreterDataType fieldCount = globalVariables.get("NF");
+			if (!(fieldCount instanceof FieldCount))
+			{
+				fieldCount = new FieldCount();
+				globalVariables.put("NF", fieldCount);
+			}
+			((FieldCount) fieldCount).SetCount(numberOfFields);
+		}
+		
+		// Works out how records get split, assigning FIELDWIDTHS switches to fixed width fields until FS gets assigned again.
+		private void ReadFieldSeparator()
 		{
-			Iterator<String> iterator = globalVariables.keySet().iterator();
+			String fieldSeparator = globalVariables.get("FS").getType();
+			String fieldWidths = globalVariables.get("FIELDWIDTHS").getType();
 			
-			// Loops through the globalVariables to delete all field references to prime it for the next line.
-			while (iterator.hasNext())
+			// CSV input is split on FS unless FIELDWIDTHS is in use, an empty FIELDWIDTHS goes back to FS as well.
+			if (fieldWidthsAssigned && !fieldWidths.trim().isEmpty())
+				recordFormat = FieldSplitter.Formats.FIXED_WIDTH;
+			else
+				recordFormat = options.isCsv() ? FieldSplitter.Formats.CSV : FieldSplitter.Formats.SEPARATED;
+			
+			recordFieldSeparator = recordFormat == FieldSplitter.Formats.FIXED_WIDTH ? fieldWidths : fieldSeparator;
+		}
+		
+		// Joins the fields with OFS to make $0 again after the program assigned a field or NF.
+		private void RebuildRecord()
+		{
+			// Without a record NF is not there yet, so the highest field assigned is the last one.
+			InterpreterDataType fieldCount = globalVariables.get("NF");
+			int numberOfFields = fields.getHighestChanged();
+			if (fieldCount != null)
+				numberOfFields = (int) fieldCount.getNumber();
+			String outputFieldSeparator = globalVariables.get("OFS").getType();
+			StringBuilder builder = new StringBuilder();
+			
+			for (int i = 1; i <= numberOfFields; i++)
 			{
-				String key = iterator.next();
-				// Uses regex to find the pattern "$i" (i is some integer) and removes each key that matches.
-				if (key.matches("\\$\\d+"))
-					iterator.remove();
+				if (i > 1)
+					builder.append(outputFieldSeparator);
+				builder.append(fields.Get(i).getSequence());
+			}
+			
+			fields.SetRecord(builder.toString());
+		}
+		
+		// Reads the next record from the input, moving on to the next file once the current one runs out of records.
+		private boolean NextRecord()
+		{
+			if (!opened)
+			{
+				opened = true;
+				OpenNextFile();
+			}
+			
+			while (input != null)
+			{
+				try
+				{
+					// RS is checked before every record since the program can change it at any point.
+					String rs = globalVariables.get("RS").getType();
+					if (separator == null || !rs.equals(recordSeparatorValue))
+					{
+						separator = new RecordSeparator(rs, options.isCsv());
+						recordSeparatorValue = rs;
+					}
+					input.setSeparator(separator);
+					
+					// Everything before this record is done, so a followed file can remember how far it got.
+					if (input instanceof FollowRecordReader)
+						((FollowRecordReader) input).Checkpoint((long) globalVariables.get("FNR").getNumber());
+					
+					if (input.NextRecord())
+					{
+						// A followed file that was truncated or rotated starts over, along with its record count and header.
+						if (input instanceof FollowRecordReader && ((FollowRecordReader) input).TakeRestart())
+						{
+							globalVariables.put("FNR", new InterpreterDataType(0L));
+							headerPending = options.isHeader();
+						}
+						
+						// The header is not a record, so it never runs the program or counts towards NR and FNR.
+						if (headerPending)
+						{
+							headerPending = false;
+							ReadHeader(input.GetRecordView());
+							continue;
+						}
+						return true;
+					}
+					
+					input.close();
+				}
+				catch (IOException e)
+				{
+					e.printStackTrace();
+				}
+				
+				// Treats a failed read the same as the end of the file so the remaining files and END blocks still run.
+				input = null;
+				OpenNextFile();
 			}
+			return false;
+		}
+		
+		// Makes the next file the current input and starts prefetching the one after it, leaves input null when no files are left.
+		private void OpenNextFile()
+		{
+			while (input == null && !files.isEmpty())
+			{
+				Path path = files.removeFirst();
+				
+				try
+				{
+					// Uses the prefetched reader when there is one since it was opened for this file.
+					if (nextInput != null)
+						input = nextInput.get();
+					else
+						input = OpenReader(path);
+				}
+				catch (ExecutionException e)
+				{
+					e.getCause().printStackTrace();
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+				catch (IOException e)
+				{
+					e.printStackTrace();
+				}
+				
+				nextInput = null;
+				
+				if (!files.isEmpty())
+				{
+					Path nextPath = files.getFirst();
+					nextInput = prefetcher.submit(() -> 
+					{
+						RecordReader reader = OpenReader(nextPath);
+						reader.Prefetch();
+						return reader;
+					});
+				}
+				
+				// A file that could not be opened is skipped, FILENAME and FNR keep going with the last file that was.
+				if (input == null)
+					continue;
+				
+				// Defines the FILENAME global variable to the file name and restarts the file's record count.
+				globalVariables.put("FILENAME", new InterpreterDataType(path.getFileName().toString()));
+				globalVariables.put("FNR", new InterpreterDataType(0L));
+				
+				// A followed file continues its own count from where the last run stopped, and NR adds on the records of it that were already read.
+				if (input instanceof FollowRecordReader)
+				{
+					long savedRecordNumber = ((FollowRecordReader) input).getSavedRecordNumber();
+					long lineCounter = (long) globalVariables.get("NR").getNumber();
+					globalVariables.put("NR", new InterpreterDataType(lineCounter + savedRecordNumber));
+					globalVariables.put("FNR", new InterpreterDataType(savedRecordNumber));
+				}
+				
+				// A followed file that picks up part way through had its header read by an earlier run, so it gets read again from the start.
+				if (options.isHeader() && input instanceof FollowRecordReader && ((FollowRecordReader) input).getStartOffset() > 0)
+					ReadFollowedHeader(path);
+				else
+					headerPending = options.isHeader();
+			}
+		}
+		
+		// Closes the current file and any file that was opened ahead of it, and stops the prefetch thread.
+		public void Close()
+		{
+			try
+			{
+				if (input != null)
+					input.close();
+			}
+			catch (IOException e)
+			{
+				e.printStackTrace();
+			}
+			
+			try
+			{
+				// The next file may still be opening, so this waits for it to be done before closing it.
+				if (nextInput != null)
+					nextInput.get().close();
+			}
+			catch (ExecutionException e)
+			{
+				// The file never opened, so there is nothing to close.
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+			catch (IOException e)
+			{
+				e.printStackTrace();
+			}
+			
+			input = null;
+			nextInput = null;
+			files.clear();
+			
+			if (prefetcher != null)
+				prefetcher.shutdown();
+		}
+		
+		// Splits the header with the same FS as the records, every file after the first has to have the same columns.
+		private void ReadHeader(CharSequence header)
+		{
+			ReadFieldSeparator();
+			FieldSplitter headerSplitter = new FieldSplitter(recordFieldSeparator, recordParagraph, recordFormat);
+			headerSplitter.Split(header);
+			List<String> names = new ArrayList<String>();
+			
+			for (int i = 0; i < headerSplitter.getCount(); i++)
+			{
+				if (headerSplitter.getValue(i) != null)
+					names.add(headerSplitter.getValue(i));
+				else
+					names.add(header.subSequence(headerSplitter.getStart(i), headerSplitter.getEnd(i)).toString());
+			}
+			
+			if (columnNames == null)
+				columnNames = names;
+			else if (!columnNames.equals(names))
+				throw new IllegalArgumentException("The header of " + globalVariables.get("FILENAME").getType() + " does not match the header of the first file.");
+		}
+		
+		private void ReadFollowedHeader(Path path)
+		{
+			try (RecordReader reader = new StreamRecordReader(Files.newInputStream(path)))
+			{
+				reader.setSeparator(new RecordSeparator(globalVariables.get("RS").getType(), options.isCsv()));
+				
+				if (reader.NextRecord())
+					ReadHeader(reader.GetRecordView());
+			}
+			catch (IOException e)
+			{
+				e.printStackTrace();
+			}
+		}
+		
+		// The splitter in use has to follow a new limit as well, since it was made with the old one.
+		public void setFieldLimit(int fieldLimit)
+		{
+			this.fieldLimit = fieldLimit;
+			
+			if (splitter != null)
+				splitter.setLimit(fieldLimit);
+		}
+		
+		// Returns the column names from the header, null when there is no header or it has not been read yet.
+		public List<String> getColumnNames()
+		{
+			return columnNames;
+		}
+		
+		private RecordReader OpenReader(Path path) throws IOException
+		{
+			RecordReader reader = OpenFileReader(path);
+			
+			// Wraps the reader so its records get found on another thread while this one interprets.
+			// Followed files are left alone since their saved offset has to match the records this thread has finished.
+			if (options.isReadAhead() && !(reader instanceof FollowRecordReader))
+				return new ReadAheadRecordReader(reader, "input-read-ahead");
+			else
+				return reader;
+		}
+		
+		private RecordReader OpenFileReader(Path path) throws IOException
+		{
+			String fileName = path.toString();
+			
+			// Compressed input gets decoded on its own thread and can only be streamed.
+			if (options.isGzip() || fileName.endsWith(".gz"))
+				return new StreamRecordReader(new BackgroundInputStream(new GZIPInputStream(OpenStream(path), DECOMPRESSION_BUFFER_SIZE), "input-gunzip"));
+			
+			if (fileName.endsWith(".zz") || fileName.endsWith(".deflate"))
+				return new StreamRecordReader(new BackgroundInputStream(new InflaterInputStream(OpenStream(path), new Inflater(), DECOMPRESSION_BUFFER_SIZE), "input-inflate"));
+			
+			// A file named "-" means standard input, which can only be streamed.
+			if (fileName.equals("-"))
+				return new StreamRecordReader(System.in, STANDARD_INPUT_BUFFER_SIZE);
+			
+			// Keeps reading the file as it grows instead of stopping at its end.
+			if (options.isFollow())
+				return new FollowRecordReader(path);
+			
+			// Memory mapping skips the copy into a read buffer, the stream handles everything else.
+			if (options.isMemoryMapped())
+				return new MappedRecordReader(path);
+			else
+				return new StreamRecordReader(Files.newInputStream(path));
+		}
+		
+		// Opens the raw bytes of a file, "-" being standard input.
+		private InputStream OpenStream(Path path) throws IOException
+		{
+			if (path.toString().equals("-"))
+				return System.in;
+			else
+				return Files.newInputStream(path);
+		}
+	}
+	
+	// CONVFMT is used by every value that turns its number into a String, so assigning it has to reach this interpreter's NumberConverter.
+	private class ConversionFormat extends InterpreterDataType
+	{
+		private ConversionFormat(String format)
+		{
+			super(format);
+			conversion.setConversionFormat(format);
+		}
+		
+		public void setType(String type)
+		{
+			super.setType(type);
+			conversion.setConversionFormat(type);
+		}
+	}
+	
+	// FS and FIELDWIDTHS note when they get assigned, since the one assigned last decides how records are split even if its value stayed the same.
+	private class FieldSeparatorSetting extends InterpreterDataType
+	{
+		private boolean fieldWidths;
+		
+		private FieldSeparatorSetting(String value, boolean fieldWidths)
+		{
+			super(value);
+			this.fieldWidths = fieldWidths;
+		}
+		
+		public void setType(String type)
+		{
+			super.setType(type);
+			fieldWidthsAssigned = fieldWidths;
 		}
 	}
 	
@@ -78,8 +559,21 @@ public class Interpreter
 	HashMap<String, FunctionDefinitionNode> functions;
 	ProgramNode program;
 	LineManager lm;
+	// Holds CONVFMT for the numbers this interpreter makes, so other interpreters never see its value.
+	private NumberConverter conversion = new NumberConverter();
+	// Built in functions that return a count or a position, their results compare as numbers while the rest return plain Strings.
+	private static final Set<String> NUMERIC_FUNCTIONS = Set.of("getline", "gsub", "index", "length", "match", "split", "sub");
+	// Set while FIELDWIDTHS was assigned more recently than FS.
+	private boolean fieldWidthsAssigned;
+	// Set once every $"name" in the program has been turned into a field number.
+	private boolean columnsResolved;
 	
 	public Interpreter(ProgramNode program, Optional<Path> filePath)
+	{
+		this(program, filePath.isPresent() ? List.of(filePath.get()) : List.of(), new InputOptions());
+	}
+	
+	public Interpreter(ProgramNode program, List<Path> filePaths, InputOptions options)
 	{
 		globalVariables = new HashMap<String, InterpreterDataType>();
 		functions = new HashMap<String, FunctionDefinitionNode>();
@@ -87,30 +581,21 @@ public class Interpreter
 		// Saves the program to get blocks for processing.
 		this.program = program;
 		
-		List<String> input = new ArrayList<String>();
-		// Checks for file path and populates the list with the file's text, if none is found, it will pass the empty ArrayList of strings in.
-		if(filePath.isPresent())
-		{
-			try 
-			{
-				input = Files.readAllLines(filePath.get());
-			} 
-			catch (IOException e) 
-			{
-				e.printStackTrace();
-			}
-			// After reading all lines, defines the FILENAME global variable to the file name.
-			globalVariables.put("FILENAME", new InterpreterDataType(filePath.get().getFileName().toString()));
-		}
-		
-		lm = new LineManager(input);
-		
-		globalVariables.put("FS", new InterpreterDataType(" "));
-		globalVariables.put("OFMT", new InterpreterDataType("%.6g"));
+		globalVariables.put("FS", new FieldSeparatorSetting(" ", false));
+		globalVariables.put("FIELDWIDTHS", new FieldSeparatorSetting("", true));
+		globalVariables.put("CONVFMT", new ConversionFormat(NumberConverter.DEFAULT_FORMAT));
+		globalVariables.put("OFMT", new InterpreterDataType(NumberConverter.DEFAULT_FORMAT));
 		globalVariables.put("OFS", new InterpreterDataType(" "));
 		globalVariables.put("ORS", new InterpreterDataType("\n"));
-		globalVariables.put("NR", new InterpreterDataType("0"));
-		globalVariables.put("FNR", new InterpreterDataType("0"));
+		globalVariables.put("RS", new InterpreterDataType("\n"));
+		globalVariables.put("NR", new InterpreterDataType(0L));
+		globalVariables.put("FNR", new InterpreterDataType(0L));
+		globalVariables.put("FILENAME", new InterpreterDataType(""));
+		
+		// Nothing gets opened until the first record is read, if no files are given the LineManager will have no records to give.
+		lm = new LineManager(filePaths, options);
+		// Records only get split as far as the highest field the program can read.
+		lm.setFieldLimit(new FieldUsage(program).getFieldLimit());
 		
 		// Iterates through each entry in ProgramNode's FunctionDefinitionNode LinkedList.
 		for(FunctionDefinitionNode function : program.getFunctionDefinitionNode())
@@ -127,33 +612,25 @@ public class Interpreter
 				// Checks if parameters are given.
 				if(totalEntries != 0)
 				{
+					String outputFormat = globalVariables.get("OFMT").getType();
+					
 					// Loops through each entry of parameters and prints it.
 					for (int i = 0; i < totalEntries; i++)
 					{
-						InterpreterDataType value = ((InterpreterArrayDataType) printParameters).getArrayType().get(String.valueOf(i));
-						String stringToPrint = value.getType();
+						InterpreterDataType value = ((InterpreterArrayDataType) printParameters).getArrayType().get(NumberConverter.FormatInteger(i));
 						
-						// This will try and truncate any numbers that can be represented as a whole number.
-						try
-						{
-							float floatValue = Float.parseFloat(stringToPrint);
-							int intValue = (int) floatValue;
-							
-							if (floatValue == intValue || floatValue == (int) floatValue) 
-							{
-			                    System.out.print(intValue + " ");
-			                } 
-							
-							else 
-			                {
-			                    System.out.print(floatValue + " ");
-			                }
-						}
+						// Text is printed as it is, only numbers get formatted, whole ones as integers and any other one through OFMT.
+						if (value.getKind() == InterpreterDataType.Kinds.STRING)
+							System.out.print(value.getType());
 						
-						catch(NumberFormatException e)
-						{
-							System.out.print(stringToPrint);
-						}
+						else if (value.getKind() == InterpreterDataType.Kinds.STRNUM)
+							System.out.print(value.getType() + " ");
+						
+						else if (value.isInteger())
+							System.out.print(NumberConverter.FormatInteger(value.getInteger()) + " ");
+						
+						else
+							System.out.print(NumberConverter.ToString(value.getNumber(), outputFormat) + " ");
 					}
 					// Goes to a new line for the next output.
 					System.out.println();
@@ -161,7 +638,7 @@ public class Interpreter
 				// This will be run if print has no parameters, assumes $0 (prints the line) and goes to the next line.
 				else
 				{
-					System.out.print(globalVariables.get("$0").getType() + "\n");
+					System.out.print(lm.GetField(0).getType() + "\n");
 				}
 			}
 			else
@@ -188,28 +665,28 @@ public class Interpreter
 				
 				for (int i = 0; i < totalEntries; i++)
 				{
-					String stringToPrint = parameters.getArrayType().get(String.valueOf(i)).getType();
+					InterpreterDataType parameter = parameters.getArrayType().get(NumberConverter.FormatInteger(i));
 					// Add each element to the string in their respective form for formating.
-					try
+					if (!parameter.looksNumeric())
 					{
-						float floatValue = Float.parseFloat(stringToPrint);
-						int intValue = (int) floatValue;
-						
-						if (floatValue == intValue || floatValue == (int) floatValue) 
-						{
-							parameterValues[i] = intValue;
-		                } 
-						
-						else 
-		                {
-							parameterValues[i] = floatValue;
-		                }
+						parameterValues[i] = parameter.getType();
 					}
 					
-					catch(NumberFormatException e)
+					// A long keeps whole numbers exact all the way up to where a double stops holding them.
+					else if (parameter.isInteger())
 					{
-						parameterValues[i] = stringToPrint;
+						parameterValues[i] = parameter.getInteger();
 					}
+					
+					else if (NumberConverter.IsInteger(parameter.getNumber())) 
+					{
+						parameterValues[i] = (long) parameter.getNumber();
+	                } 
+					
+					else 
+	                {
+						parameterValues[i] = parameter.getNumber();
+	                }
 				}
 				// Prints out the formated result.
 				System.out.printf(formatedString.getType(), parameterValues);
@@ -272,15 +749,17 @@ public class Interpreter
 					}
 					
 					// Changes the value in the IDT.
-					IDT.setType(result);
+					// A constant target has nowhere to keep the result, so only the count comes back.
+					if (!IDT.isReadOnly())
+						IDT.setType(result);
 					
-					return Integer.toString(totalSubstitutions);
+					return NumberConverter.FormatInteger(totalSubstitutions);
 				}
 				// Assumes it will work on $0 (whole line) if no target is given.
 				else
 				{
 					// Gets the string that is held by the field value.
-					InterpreterDataType globalIDT = globalVariables.get("$0");
+					InterpreterDataType globalIDT = lm.GetField(0);
 					String globalIDTtype = globalIDT.getType();
 					
 					String regex = ((InterpreterArrayDataType) gsubParameters).getArrayType().get("0").getType();
@@ -301,7 +780,7 @@ public class Interpreter
 					// Overrides the existing field reference string with the new one.
 					globalIDT.setType(result);
 					
-					return Integer.toString(totalSubstitutions);
+					return NumberConverter.FormatInteger(totalSubstitutions);
 				}
 			}
 			else
@@ -321,7 +800,7 @@ public class Interpreter
 				int position = in.indexOf(find);
 				
 				if (position != -1)
-					return Integer.toString(++position);
+					return NumberConverter.FormatInteger(++position);
 				// Returns 0 when no character was found.
 				else
 					return "0";
@@ -336,7 +815,7 @@ public class Interpreter
 			if(lengthParameters instanceof InterpreterArrayDataType)
 			{
 				InterpreterDataType parameter = ((InterpreterArrayDataType) lengthParameters).getArrayType().get("0");
-				return Integer.toString(parameter.getType().length());
+				return NumberConverter.FormatInteger(parameter.getType().length());
 			}
 			else
 				throw new IllegalArgumentException("Expected IADT in match statement.");
@@ -377,7 +856,7 @@ public class Interpreter
 		        // Returns the index where the substring begins.
 		        if (longestStart != -1) 
 		        {
-		            return Integer.toString(++longestStart); // Increments the count since Java starts at 0
+		            return NumberConverter.FormatInteger(++longestStart); // Increments the count since Java starts at 0
 		        } 
 		        // Returns 0 if no match was found.
 		        else 
@@ -410,14 +889,14 @@ public class Interpreter
 					String separator = ((InterpreterArrayDataType) splitParameters).getArrayType().get("2").getType();
 					String pieces[] = mainString.split(separator);
 					
-					return Integer.toString(pieces.length);
+					return NumberConverter.FormatInteger(pieces.length);
 				}
 				// Assumes that the separator is a whitespace.
 				else
 				{
 					String pieces[] = mainString.split(" ");
 					
-					return Integer.toString(pieces.length);
+					return NumberConverter.FormatInteger(pieces.length);
 				}
 			}
 			else
@@ -460,18 +939,20 @@ public class Interpreter
 			            int end = matcher.end();
 			            
 			            target = target.substring(0, start) + replacement + target.substring(end);
-			            IDT.setType(target); // Inserts the new string
+			            // A constant target has nowhere to keep the result, so only the count comes back.
+			            if (!IDT.isReadOnly())
+			            	IDT.setType(target); // Inserts the new string
 			            hasSubbed++;
 			        }
 			        // Returns 0 if nothing was found or 1 if it was found.
-			        return Integer.toString(hasSubbed);
+			        return NumberConverter.FormatInteger(hasSubbed);
 				}
 				// Will work on $0 (whole line) if no target is found.
 				else
 				{
-					InterpreterDataType IDT = globalVariables.get("$0");
+					InterpreterDataType IDT = lm.GetField(0);
 					int hasSubbed = 0; // Gets incremented once and returned to identify if a sub happened.
-					String target = globalVariables.get("$0").getType();
+					String target = IDT.getType();
 					String regex = ((InterpreterArrayDataType) subParameters).getArrayType().get("0").getType();
 					String replacement = ((InterpreterArrayDataType) subParameters).getArrayType().get("1").getType();
 					
@@ -490,7 +971,7 @@ public class Interpreter
 			            hasSubbed++;
 			        }
 			     // Returns 0 if nothing was found or 1 if it was found.
-			        return Integer.toString(hasSubbed);
+			        return NumberConverter.FormatInteger(hasSubbed);
 				}
 			}
 			else
@@ -513,8 +994,8 @@ public class Interpreter
 				{
 					String string = ((InterpreterArrayDataType) substrParameters).getArrayType().get("0").getType();
 					// Start subtracted by one since AWK's first character index starts at 1 unlike Java.
-					int start = Integer.parseInt(((InterpreterArrayDataType) substrParameters).getArrayType().get("1").getType()) - 1;
-					int length = Integer.parseInt(((InterpreterArrayDataType) substrParameters).getArrayType().get("2").getType()) + start;
+					int start = (int) ((InterpreterArrayDataType) substrParameters).getArrayType().get("1").getNumber() - 1;
+					int length = (int) ((InterpreterArrayDataType) substrParameters).getArrayType().get("2").getNumber() + start;
 					
 					return string.substring(start, length);
 				}
@@ -523,7 +1004,7 @@ public class Interpreter
 				{
 					String string = ((InterpreterArrayDataType) substrParameters).getArrayType().get("0").getType();
 					// Start subtracted by one since AWK's first character index starts at 1 unlike Java.
-					int start = Integer.parseInt(((InterpreterArrayDataType) substrParameters).getArrayType().get("1").getType()) - 1;
+					int start = (int) ((InterpreterArrayDataType) substrParameters).getArrayType().get("1").getNumber() - 1;
 					
 					return string.substring(start);
 				}
@@ -559,26 +1040,53 @@ public class Interpreter
 	// This will run the interpreter.
 	public void InterpretProgram()
 	{
-		for(BlockNode beginBlock : program.getBeginBlocks())
-		{
-			InterpretBlock(beginBlock);
-		}
-		
-		// This will run all non begin or end blocks for each record of SplitAndAssign.
-		while(lm.SplitAndAssign() != false)
+		// The input gets closed however the program ends, even when it stops part way through a file because of an error.
+		try
 		{
-			for(BlockNode block : program.getBlocks())
+			for(BlockNode beginBlock : program.getBeginBlocks())
 			{
-				InterpretBlock(block);
+				InterpretBlock(beginBlock);
+			}
+			
+			// A program with only BEGIN blocks never reads its input, like AWK it would otherwise sit waiting on standard input.
+			if (program.getBlocks().isEmpty() && program.getEndBlocks().isEmpty())
+				return;
+			
+			// This will run all non begin or end blocks for each record of SplitAndAssign.
+			while(lm.SplitAndAssign() != false)
+			{
+				// Column names are turned into field numbers as soon as the header is known, before any record uses them.
+				if (!columnsResolved && lm.getColumnNames() != null)
+					ResolveColumnNames();
+				
+				for(BlockNode block : program.getBlocks())
+				{
+					InterpretBlock(block);
+				}
+			}
+			
+			// A file with only a header still gives END its column names.
+			if (!columnsResolved && lm.getColumnNames() != null)
+				ResolveColumnNames();
+			
+			for(BlockNode endBlock : program.getEndBlocks())
+			{
+				InterpretBlock(endBlock);
 			}
 		}
-		
-		for(BlockNode endBlock : program.getEndBlocks())
+		finally
 		{
-			InterpretBlock(endBlock);
+			lm.Close();
 		}
 	}
 	
+	// Walks the program once to swap every $"name" for the number of its column, which also lets records be split less.
+	private void ResolveColumnNames()
+	{
+		lm.setFieldLimit(new FieldUsage(program, lm.getColumnNames()).getFieldLimit());
+		columnsResolved = true;
+	}
+	
 	private void InterpretBlock(BlockNode block)
 	{
 		// Checks to see if there is a condition.
@@ -633,17 +1141,17 @@ public class Interpreter
 					if (operation.getOperation() != OperationNode.operations.POSTINC && operation.getOperation() != OperationNode.operations.POSTDEC)
 					{
 						// Sets the value of the target to the result.
-						target.setType(result.getType());
+						target.Assign(result);
 					}
 				}
 				else
 				{
 					// Sets the value of the target to the result.
-					target.setType(result.getType());
+					target.Assign(result);
 				}
 
-				// Returns a new instance of ReturnType with the result of the assignment.
-				return new ReturnType(ReturnType.ReturnTypes.NORMAL, Optional.of(target.getType()));
+				// Nothing reads the value of an assignment statement, so a number result is not turned into a String for it.
+				return new ReturnType(ReturnType.ReturnTypes.NORMAL);
 			}
 			
 			// Checks for OperationNode and then checks for a field reference operation.
@@ -664,17 +1172,17 @@ public class Interpreter
 						if (operation.getOperation() != OperationNode.operations.POSTINC && operation.getOperation() != OperationNode.operations.POSTDEC)
 						{
 							// Sets the value of the target to the result.
-							targetValue.setType(result.getType());
+							targetValue.Assign(result);
 						}
 					}
 					else
 					{
 						// Sets the value of the target to the result.
-						targetValue.setType(result.getType());
+						targetValue.Assign(result);
 					}
 					
-					// Returns a new instance of ReturnType with the result of the assignment.
-					return new ReturnType(ReturnType.ReturnTypes.NORMAL, Optional.of(targetValue.getType()));
+					// Nothing reads the value of an assignment statement, so a number result is not turned into a String for it.
+					return new ReturnType(ReturnType.ReturnTypes.NORMAL);
 				}
 				
 				// Throws an exception when the OperationNode is not a field reference.
@@ -957,7 +1465,7 @@ public class Interpreter
 		if (stmt instanceof FunctionCallNode)
 		{
 			FunctionCallNode fcnStmt = (FunctionCallNode) stmt;
-			String FunctionCallResult;
+			InterpreterDataType FunctionCallResult;
 			
 			// Checks if there is a local variables list.
 			if (localVariables.isPresent())
@@ -966,7 +1474,7 @@ public class Interpreter
 				FunctionCallResult = RunFunctionCall(fcnStmt, null);
 			
 			// Checks for when the result is null like with print and no parameters.
-			if (FunctionCallResult != null)
+			if (FunctionCallResult.getType() != null)
 				return new ReturnType(ReturnType.ReturnTypes.NORMAL, Optional.of(FunctionCallResult));
 			else
 				return new ReturnType(ReturnType.ReturnTypes.NORMAL);
@@ -1017,8 +1525,10 @@ public class Interpreter
 			// Checks if there is a return expression.
 			if (returnStmt.getReturnExpression() != null)
 			{
-				InterpreterDataType value = GetIDT(returnStmt.getReturnExpression(), localVariables);
-				return new ReturnType(ReturnType.ReturnTypes.RETURN, Optional.of(value.getType()));
+				// Returns a copy so the caller gets the value as it is now, kind and all, not a variable or field that can still change.
+				InterpreterDataType value = new InterpreterDataType();
+				value.Assign(GetIDT(returnStmt.getReturnExpression(), localVariables));
+				return new ReturnType(ReturnType.ReturnTypes.RETURN, Optional.of(value));
 			}
 			
 			// Treats it as a return with no parameter.
@@ -1079,13 +1589,13 @@ public class Interpreter
 					if (operation.getOperation() != OperationNode.operations.POSTINC && operation.getOperation() != OperationNode.operations.POSTDEC)
 					{
 						// Sets the value of the target to the result.
-						target.setType(result.getType());
+						target.Assign(result);
 					}
 				}
 				else
 				{
 					// Sets the value of the target to the result.
-					target.setType(result.getType());
+					target.Assign(result);
 				}
 				
 				return target;
@@ -1109,13 +1619,13 @@ public class Interpreter
 						if (operation.getOperation() != OperationNode.operations.POSTINC && operation.getOperation() != OperationNode.operations.POSTDEC)
 						{
 							// Sets the value of the target to the result.
-							targetValue.setType(result.getType());
+							targetValue.Assign(result);
 						}
 					}
 					else
 					{
 						// Sets the value of the target to the result.
-						targetValue.setType(result.getType());
+						targetValue.Assign(result);
 					}
 					
 					return targetValue;
@@ -1130,18 +1640,24 @@ public class Interpreter
 				throw new IllegalArgumentException("Assignment must start with a variable or field reference.");
 		}
 		
-		// Returns a new IDT with the value set to the constant node's value.
+		// Returns the constant node's value, which is made once with the node and shared by every use of it.
 		if (node instanceof ConstantNode)
 		{
 			ConstantNode cn = (ConstantNode) node;
-			return new InterpreterDataType(cn.getConstantValue());
+			InterpreterDataType constant = cn.getValue();
+			
+			// The shared value only knows the default CONVFMT, so a number that is not whole needs one of its own once CONVFMT is changed.
+			if (!conversion.isDefault() && constant.getKind() == InterpreterDataType.Kinds.NUMBER && !constant.isInteger())
+				return new InterpreterDataType(constant.getNumber(), conversion);
+			
+			return constant;
 		}
 		
 		// Currently not working, this will be fully implemented later.
 		if (node instanceof FunctionCallNode)
 		{
 			FunctionCallNode fcn = (FunctionCallNode) node;
-			String FunctionCallResult;
+			InterpreterDataType FunctionCallResult;
 			
 			// Checks if there is a local variables list.
 			if (localVariables.isPresent())
@@ -1149,7 +1665,7 @@ public class Interpreter
 			else
 				FunctionCallResult = RunFunctionCall(fcn, null);
 			
-			return new InterpreterDataType(FunctionCallResult);
+			return FunctionCallResult;
 
 			
 		}
@@ -1301,7 +1817,7 @@ public class Interpreter
 					// If no instance of this variable is found it will declare a new one with the value 0.
 					else
 					{
-						localVariables.get().put(variableName, new InterpreterDataType("0"));
+						localVariables.get().put(variableName, new InterpreterDataType("0", true));
 						return localVariables.get().get(variableName);
 					}
 				}
@@ -1309,7 +1825,7 @@ public class Interpreter
 				// If no instance of this variable is found it will declare a new one with the value 0.
 				else
 				{
-					globalVariables.put(variableName, new InterpreterDataType("0"));
+					globalVariables.put(variableName, new InterpreterDataType("0", true));
 					return globalVariables.get(variableName);
 				}
 			}
@@ -1330,33 +1846,34 @@ public class Interpreter
 					 
 					 if (operation.getOperation() == OperationNode.operations.MATCH)
 					 {
-						 String match = left.getType();
+						 // Matches against the record bytes directly when the left side has not been decoded.
+						 CharSequence match = left.getSequence();
 						 
 						 Pattern regex = Pattern.compile(pattern);
 						 Matcher matcher = regex.matcher(match);
 						 
 						 // Returns an IDT with 1 to signify a match.
 						 if(matcher.find())
-							 return new InterpreterDataType("1");
+							 return InterpreterDataType.TRUE;
 						 
 						 else
-							 return new InterpreterDataType("0");
+							 return InterpreterDataType.FALSE;
 					 }
 					 
 					 // Does the same as Match but returns false if a match is found.
 					 if (operation.getOperation() == OperationNode.operations.NOTMATCH)
 					 {
-						 String match = left.getType();
+						 CharSequence match = left.getSequence();
 						 
 						 Pattern regex = Pattern.compile(pattern);
 						 Matcher matcher = regex.matcher(match);
 						 
 						 // Returns an IDT with 1 to signify a match.
 						 if(matcher.find())
-							 return new InterpreterDataType("0");
+							 return InterpreterDataType.FALSE;
 						 
 						 else
-							 return new InterpreterDataType("1");
+							 return InterpreterDataType.TRUE;
 					 }
 				 }
 				 
@@ -1367,96 +1884,145 @@ public class Interpreter
 					 
 					 if (operation.getOperation() == OperationNode.operations.EXPONENT)
 					 {
-						 // Converts left and right values to a float.
-						 float leftFloat = Float.parseFloat(left.getType());
-						 float rightFloat = Float.parseFloat(right.getType());
+						 // Converts left and right values to a number.
+						 double leftNumber = left.getNumber();
+						 double rightNumber = right.getNumber();
 						 
 						 // Use Math.pow to get the exponential expression.
-						 float result = (float) Math.pow(leftFloat, rightFloat);
+						 double result = Math.pow(leftNumber, rightNumber);
 						 
 						 // Returns the result in an IDT.
-						 return new InterpreterDataType(Float.toString(result));
+						 return new InterpreterDataType(result, conversion);
 					 }
 					 
 					 if (operation.getOperation() == OperationNode.operations.ADD)
 					 {
-						 // Converts left and right values to a float.
-						 float leftFloat = Float.parseFloat(left.getType());
-						 float rightFloat = Float.parseFloat(right.getType());
+						 // Whole numbers stay as longs, a result too big for one falls through to the double below.
+						 if (left.isInteger() && right.isInteger())
+						 {
+							 try
+							 {
+								 return new InterpreterDataType(Math.addExact(left.getInteger(), right.getInteger()));
+							 }
+							 catch (ArithmeticException e)
+							 {
+								 // Overflowed a long, so the result is worked out as a double instead.
+							 }
+						 }
+						
+						 // Converts left and right values to a number.
+						 double leftNumber = left.getNumber();
+						 double rightNumber = right.getNumber();
 						 
-						 float result = leftFloat + rightFloat;
+						 double result = leftNumber + rightNumber;
 						 
 						 // Returns the result in an IDT.
-						 return new InterpreterDataType(Float.toString(result));
+						 return new InterpreterDataType(result, conversion);
 					 }
 					 
 					 if (operation.getOperation() == OperationNode.operations.SUBTRACT)
 					 {
-						 // Converts left and right values to a float.
-						 float leftFloat = Float.parseFloat(left.getType());
-						 float rightFloat = Float.parseFloat(right.getType());
+						 if (left.isInteger() && right.isInteger())
+						 {
+							 try
+							 {
+								 return new InterpreterDataType(Math.subtractExact(left.getInteger(), right.getInteger()));
+							 }
+							 catch (ArithmeticException e)
+							 {
+								 // Overflowed a long, so the result is worked out as a double instead.
+							 }
+						 }
+						
+						 // Converts left and right values to a number.
+						 double leftNumber = left.getNumber();
+						 double rightNumber = right.getNumber();
 						 
-						 float result = leftFloat - rightFloat;
+						 double result = leftNumber - rightNumber;
 						 
 						 // Returns the result in an IDT.
-						 return new InterpreterDataType(Float.toString(result));
+						 return new InterpreterDataType(result, conversion);
 					 }
 					 
 					 if (operation.getOperation() == OperationNode.operations.MULTIPLY)
 					 {
-						 // Converts left and right values to a float.
-						 float leftFloat = Float.parseFloat(left.getType());
-						 float rightFloat = Float.parseFloat(right.getType());
+						 if (left.isInteger() && right.isInteger())
+						 {
+							 try
+							 {
+								 return new InterpreterDataType(Math.multiplyExact(left.getInteger(), right.getInteger()));
+							 }
+							 catch (ArithmeticException e)
+							 {
+								 // Overflowed a long, so the result is worked out as a double instead.
+							 }
+						 }
+						
+						 // Converts left and right values to a number.
+						 double leftNumber = left.getNumber();
+						 double rightNumber = right.getNumber();
 						 
-						 float result = leftFloat * rightFloat;
+						 double result = leftNumber * rightNumber;
 						 
 						 // Returns the result in an IDT.
-						 return new InterpreterDataType(Float.toString(result));
+						 return new InterpreterDataType(result, conversion);
 					 }
 					 
 					 if (operation.getOperation() == OperationNode.operations.DIVIDE)
 					 {
-						 // Converts left and right values to a float.
-						 float leftFloat = Float.parseFloat(left.getType());
-						 float rightFloat = Float.parseFloat(right.getType());
+						 // Only a division with nothing left over stays a whole number, Long.MIN_VALUE / -1 is the one that does not fit.
+						 if (left.isInteger() && right.isInteger() && right.getInteger() != 0 && left.getInteger() % right.getInteger() == 0
+							 && !(left.getInteger() == Long.MIN_VALUE && right.getInteger() == -1))
+							 return new InterpreterDataType(left.getInteger() / right.getInteger());
+						
+						 // Converts left and right values to a number.
+						 double leftNumber = left.getNumber();
+						 double rightNumber = right.getNumber();
 						 
-						 float result = leftFloat / rightFloat;
+						 double result = leftNumber / rightNumber;
 						 
 						 // Returns the result in an IDT.
-						 return new InterpreterDataType(Float.toString(result));
+						 return new InterpreterDataType(result, conversion);
 					 }
 					 
 					 if (operation.getOperation() == OperationNode.operations.MODULO)
 					 {
-						 // Converts left and right values to a float.
-						 float leftFloat = Float.parseFloat(left.getType());
-						 float rightFloat = Float.parseFloat(right.getType());
+						 // The remainder of two longs always fits in one, dividing by zero is left to the double which gives NaN.
+						 if (left.isInteger() && right.isInteger() && right.getInteger() != 0)
+							 return new InterpreterDataType(left.getInteger() % right.getInteger());
+						
+						 // Converts left and right values to a number.
+						 double leftNumber = left.getNumber();
+						 double rightNumber = right.getNumber();
 						 
-						 float result = leftFloat % rightFloat;
+						 double result = leftNumber % rightNumber;
 						 
 						 // Returns the result in an IDT.
-						 return new InterpreterDataType(Float.toString(result));
+						 return new InterpreterDataType(result, conversion);
 					 }
 					 
 					 if (operation.getOperation() == OperationNode.operations.EQ)
 					 {
-						 // Tries to convert left and right to floats.
-						 try
+						 // Compares as numbers when both sides are numbers or look like them.
+						 if (left.isNumeric() && right.isNumeric())
 						 {
-							 // Converts left and right values to a float.
-							 float leftFloat = Float.parseFloat(left.getType());
-							 float rightFloat = Float.parseFloat(right.getType());
+							 // Whole numbers are compared as longs, past 2^53 a double can no longer tell them apart.
+							 boolean result;
+							 if (left.isInteger() && right.isInteger())
+								 result = left.getInteger() == right.getInteger();
+							 else
+								 result = left.getNumber() == right.getNumber();
 							 
-							// Checks if the floats are equal and returns an IDT with true or false.
-							 if (leftFloat == rightFloat)
-								 return new InterpreterDataType("1");
+							// Checks if the numbers are equal and returns an IDT with true or false.
+							 if (result)
+								 return InterpreterDataType.TRUE;
 							 
 							 else
-								 return new InterpreterDataType("0");
+								 return InterpreterDataType.FALSE;
 						 }
 						 
-						 // If conversions fail it will treat it as a string compare.
-						 catch (NumberFormatException e)
+						 // Otherwise it will treat it as a string compare.
+						 else
 						 {
 							 // Converts left and right values to a string.
 							 String leftString = left.getType();
@@ -1464,32 +2030,35 @@ public class Interpreter
 							 
 							 // Checks if the strings are equal and returns an IDT with true or false.
 							 if (leftString.equals(rightString))
-								 return new InterpreterDataType("1");
+								 return InterpreterDataType.TRUE;
 							 
 							 else
-								 return new InterpreterDataType("0");
+								 return InterpreterDataType.FALSE;
 						 }
 					 }
 					 
 					 if (operation.getOperation() == OperationNode.operations.NE)
 					 {
-						 // Tries to convert left and right to floats.
-						 try
+						 // Compares as numbers when both sides are numbers or look like them.
+						 if (left.isNumeric() && right.isNumeric())
 						 {
-							 // Converts left and right values to a float.
-							 float leftFloat = Float.parseFloat(left.getType());
-							 float rightFloat = Float.parseFloat(right.getType());
+							 // Whole numbers are compared as longs, past 2^53 a double can no longer tell them apart.
+							 boolean result;
+							 if (left.isInteger() && right.isInteger())
+								 result = left.getInteger() != right.getInteger();
+							 else
+								 result = left.getNumber() != right.getNumber();
 							 
-							// Checks if the floats are not equal and returns an IDT with true or false.
-							 if (leftFloat != rightFloat)
-								 return new InterpreterDataType("1");
+							// Checks if the numbers are not equal and returns an IDT with true or false.
+							 if (result)
+								 return InterpreterDataType.TRUE;
 							 
 							 else
-								 return new InterpreterDataType("0");
+								 return InterpreterDataType.FALSE;
 						 }
 						 
-						 // If conversions fail it will treat it as a string compare.
-						 catch (NumberFormatException e)
+						 // Otherwise it will treat it as a string compare.
+						 else
 						 {
 							 // Converts left and right values to a string.
 							 String leftString = left.getType();
@@ -1497,32 +2066,35 @@ public class Interpreter
 							 
 							 // Checks if the strings are not equal and returns an IDT with true or false.
 							 if (!leftString.equals(rightString))
-								 return new InterpreterDataType("1");
+								 return InterpreterDataType.TRUE;
 							 
 							 else
-								 return new InterpreterDataType("0");
+								 return InterpreterDataType.FALSE;
 						 }
 					 }
 					 
 					 if (operation.getOperation() == OperationNode.operations.LT)
 					 {
-						 // Tries to convert left and right to floats.
-						 try
+						 // Compares as numbers when both sides are numbers or look like them.
+						 if (left.isNumeric() && right.isNumeric())
 						 {
-							 // Converts left and right values to a float.
-							 float leftFloat = Float.parseFloat(left.getType());
-							 float rightFloat = Float.parseFloat(right.getType());
+							 // Whole numbers are compared as longs, past 2^53 a double can no longer tell them apart.
+							 boolean result;
+							 if (left.isInteger() && right.isInteger())
+								 result = left.getInteger() < right.getInteger();
+							 else
+								 result = left.getNumber() < right.getNumber();
 							 
 							// Checks if left is less than right and returns an IDT with true or false.
-							 if (leftFloat < rightFloat)
-								 return new InterpreterDataType("1");
+							 if (result)
+								 return InterpreterDataType.TRUE;
 							 
 							 else
-								 return new InterpreterDataType("0");
+								 return InterpreterDataType.FALSE;
 						 }
 						 
-						 // If conversions fail it will treat it as a string compare.
-						 catch (NumberFormatException e)
+						 // Otherwise it will treat it as a string compare.
+						 else
 						 {
 							 // Converts left and right values to a string.
 							 String leftString = left.getType();
@@ -1532,32 +2104,35 @@ public class Interpreter
 							 
 							 // Checks if left is less than right and returns an IDT with true or false.
 							 if (stringComparison < 0)
-								 return new InterpreterDataType("1");
+								 return InterpreterDataType.TRUE;
 							 
 							 else
-								 return new InterpreterDataType("0");
+								 return InterpreterDataType.FALSE;
 						 }
 					 }
 					 
 					 if (operation.getOperation() == OperationNode.operations.LE)
 					 {
-						 // Tries to convert left and right to floats.
-						 try
+						 // Compares as numbers when both sides are numbers or look like them.
+						 if (left.isNumeric() && right.isNumeric())
 						 {
-							 // Converts left and right values to a float.
-							 float leftFloat = Float.parseFloat(left.getType());
-							 float rightFloat = Float.parseFloat(right.getType());
+							 // Whole numbers are compared as longs, past 2^53 a double can no longer tell them apart.
+							 boolean result;
+							 if (left.isInteger() && right.isInteger())
+								 result = left.getInteger() <= right.getInteger();
+							 else
+								 result = left.getNumber() <= right.getNumber();
 							 
-							// Checks if the floats are equal and returns an IDT with true or false.
-							 if (leftFloat <= rightFloat)
-								 return new InterpreterDataType("1");
+							// Checks if the numbers are equal and returns an IDT with true or false.
+							 if (result)
+								 return InterpreterDataType.TRUE;
 							 
 							 else
-								 return new InterpreterDataType("0");
+								 return InterpreterDataType.FALSE;
 						 }
 						 
-						 // If conversions fail it will treat it as a string compare.
-						 catch (NumberFormatException e)
+						 // Otherwise it will treat it as a string compare.
+						 else
 						 {
 							 // Converts left and right values to a string.
 							 String leftString = left.getType();
@@ -1567,37 +2142,40 @@ public class Interpreter
 							 
 							 // Checks if left is less than or equal to right and returns an IDT with true or false.
 							 if (stringComparison < 0)
-								 return new InterpreterDataType("1");
+								 return InterpreterDataType.TRUE;
 							 
 							 // Returns false if leftString is lexicographically smaller than rightString.
 							 else if (stringComparison > 0)
-								 return new InterpreterDataType("0");
+								 return InterpreterDataType.FALSE;
 							 
 							 // Returns true as by this point they are implied to be equal.
 							 else
-								 return new InterpreterDataType("1");
+								 return InterpreterDataType.TRUE;
 						 }
 					 }
 					 
 					 if (operation.getOperation() == OperationNode.operations.GT)
 					 {
-						 // Tries to convert left and right to floats.
-						 try
+						 // Compares as numbers when both sides are numbers or look like them.
+						 if (left.isNumeric() && right.isNumeric())
 						 {
-							 // Converts left and right values to a float.
-							 float leftFloat = Float.parseFloat(left.getType());
-							 float rightFloat = Float.parseFloat(right.getType());
+							 // Whole numbers are compared as longs, past 2^53 a double can no longer tell them apart.
+							 boolean result;
+							 if (left.isInteger() && right.isInteger())
+								 result = left.getInteger() > right.getInteger();
+							 else
+								 result = left.getNumber() > right.getNumber();
 							 
 							// Checks if left is greater than right and returns an IDT with true or false.
-							 if (leftFloat > rightFloat)
-								 return new InterpreterDataType("1");
+							 if (result)
+								 return InterpreterDataType.TRUE;
 							 
 							 else
-								 return new InterpreterDataType("0");
+								 return InterpreterDataType.FALSE;
 						 }
 						 
-						 // If conversions fail it will treat it as a string compare.
-						 catch (NumberFormatException e)
+						 // Otherwise it will treat it as a string compare.
+						 else
 						 {
 							 // Converts left and right values to a string.
 							 String leftString = left.getType();
@@ -1607,32 +2185,35 @@ public class Interpreter
 							 
 							 // Checks if left is greater than right and returns an IDT with true or false.
 							 if (stringComparison > 0)
-								 return new InterpreterDataType("1");
+								 return InterpreterDataType.TRUE;
 							 
 							 else
-								 return new InterpreterDataType("0");
+								 return InterpreterDataType.FALSE;
 						 }
 					 }
 					 
 					 if (operation.getOperation() == OperationNode.operations.GE)
 					 {
-						 // Tries to convert left and right to floats.
-						 try
+						 // Compares as numbers when both sides are numbers or look like them.
+						 if (left.isNumeric() && right.isNumeric())
 						 {
-							 // Converts left and right values to a float.
-							 float leftFloat = Float.parseFloat(left.getType());
-							 float rightFloat = Float.parseFloat(right.getType());
+							 // Whole numbers are compared as longs, past 2^53 a double can no longer tell them apart.
+							 boolean result;
+							 if (left.isInteger() && right.isInteger())
+								 result = left.getInteger() >= right.getInteger();
+							 else
+								 result = left.getNumber() >= right.getNumber();
 							 
-							// Checks if the floats are equal and returns an IDT with true or false.
-							 if (leftFloat >= rightFloat)
-								 return new InterpreterDataType("1");
+							// Checks if the numbers are equal and returns an IDT with true or false.
+							 if (result)
+								 return InterpreterDataType.TRUE;
 							 
 							 else
-								 return new InterpreterDataType("0");
+								 return InterpreterDataType.FALSE;
 						 }
 						 
-						 // If conversions fail it will treat it as a string compare.
-						 catch (NumberFormatException e)
+						 // Otherwise it will treat it as a string compare.
+						 else
 						 {
 							 // Converts left and right values to a string.
 							 String leftString = left.getType();
@@ -1642,15 +2223,15 @@ public class Interpreter
 							 
 							 // Checks if left is greater than or equal to right and returns an IDT with true or false.
 							 if (stringComparison > 0)
-								 return new InterpreterDataType("1");
+								 return InterpreterDataType.TRUE;
 							 
 							 // Returns false if leftString is lexicographically larger than rightString.
 							 else if (stringComparison < 0)
-								 return new InterpreterDataType("0");
+								 return InterpreterDataType.FALSE;
 							 
 							 // Returns true as by this point they are implied to be equal.
 							 else
-								 return new InterpreterDataType("1");
+								 return InterpreterDataType.TRUE;
 						 }
 					 }
 					 
@@ -1663,11 +2244,11 @@ public class Interpreter
 						 // Checks if either left or right string are false (empty string or "0").
 						 // Returns false since both values have to be true.
 						 if (leftString.isEmpty() || leftString.equals("0") || rightString.isEmpty() || rightString.equals("0"))
-							 return new InterpreterDataType("0");
+							 return InterpreterDataType.FALSE;
 						 
 						// Returns true since both values are considered true (not empty string or "0")
 						 else
-							 return new InterpreterDataType("1");
+							 return InterpreterDataType.TRUE;
 					 }
 					 
 					 if (operation.getOperation() == OperationNode.operations.OR)
@@ -1679,11 +2260,11 @@ public class Interpreter
 						 // Checks if either left and right string are false (empty string or "0").
 						 // Returns false since neither value is true.
 						 if (leftString.isEmpty() || leftString.equals("0") && rightString.isEmpty() || rightString.equals("0"))
-							 return new InterpreterDataType("0");
+							 return InterpreterDataType.FALSE;
 						 
 						// Returns true since at least one of the values are considered true (not empty string or "0").
 						 else
-							 return new InterpreterDataType("1");
+							 return InterpreterDataType.TRUE;
 					 }
 					 
 					 if (operation.getOperation() == OperationNode.operations.IN)
@@ -1698,11 +2279,11 @@ public class Interpreter
 								 
 								 // Checks to see if the index exists.
 								 if (rightArray.getArrayType().containsKey(leftString))
-									 return new InterpreterDataType("1");
+									 return InterpreterDataType.TRUE;
 								 
 								 // If no matches are found, returns false.
 								 else
-									 return new InterpreterDataType("0");
+									 return InterpreterDataType.FALSE;
 							 }
 							 
 							 else
@@ -1719,11 +2300,11 @@ public class Interpreter
 								 
 								 // Checks to see if the index exists.
 								 if (rightArray.getArrayType().containsKey(leftString))
-									 return new InterpreterDataType("1");
+									 return InterpreterDataType.TRUE;
 								 
 								 // If no matches are found, returns false.
 								 else
-									 return new InterpreterDataType("0");
+									 return InterpreterDataType.FALSE;
 							 }
 							 
 							 else
@@ -1752,112 +2333,119 @@ public class Interpreter
 			 {
 				 if (operation.getOperation() == OperationNode.operations.PREINC)
 				 {
-					 // Returns the incremented value.
-					 try
+					 // Counters stay as longs, one that would overflow is carried on as a double below.
+					 if (left.isInteger())
 					 {
-						float floatValue = Float.parseFloat(left.getType());
-						floatValue++;
-						// Sets the new value of the variable.
-						left.setType(Float.toString(floatValue));
-						// Returns the new value.
-						return new InterpreterDataType(Float.toString(floatValue));
+						 try
+						 {
+							 long originalValue = left.getInteger();
+							 long newValue = Math.incrementExact(originalValue);
+							 left.setInteger(newValue);
+							 return new InterpreterDataType(newValue);
+						 }
+						 catch (ArithmeticException e)
+						 {
+							 // Falls through to the double version.
+						 }
 					 }
 					 
-					 // Throws an exception when trying to increment anything other than a string.
-					 catch (NumberFormatException e)
-					 {
-						 throw new IllegalArgumentException("Can only increment number values.");
-					 }
+					 double numberValue = left.getNumber();
+					 numberValue++;
+					 // Sets the new value of the variable.
+					 left.setNumber(numberValue, conversion);
+					 // Returns the new value.
+					 return new InterpreterDataType(numberValue, conversion);
 				 }
 				 
 				 if (operation.getOperation() == OperationNode.operations.POSTINC)
 				 {
-					 // Returns the incremented value.
-					 try
+					 // Counters stay as longs, one that would overflow is carried on as a double below.
+					 if (left.isInteger())
 					 {
-						float originalFloatValue = Float.parseFloat(left.getType());
-						float newFloatValue = originalFloatValue + 1;
-						// Sets the new value of the variable.
-						left.setType(Float.toString(newFloatValue));
-						// Returns the original value since increment happens after the operation.
-						return new InterpreterDataType(Float.toString(originalFloatValue));
+						 try
+						 {
+							 long originalValue = left.getInteger();
+							 long newValue = Math.incrementExact(originalValue);
+							 left.setInteger(newValue);
+							 return new InterpreterDataType(originalValue);
+						 }
+						 catch (ArithmeticException e)
+						 {
+							 // Falls through to the double version.
+						 }
 					 }
 					 
-					 // Throws an exception when trying to increment anything other than a string.
-					 catch (NumberFormatException e)
-					 {
-						 throw new IllegalArgumentException("Can only increment number values.");
-					 }
+					 double originalValue = left.getNumber();
+					 double newValue = originalValue + 1;
+					 // Sets the new value of the variable.
+					 left.setNumber(newValue, conversion);
+					 // Returns the original value since increment happens after the operation.
+					 return new InterpreterDataType(originalValue, conversion);
 				 }
 				 
 				 if (operation.getOperation() == OperationNode.operations.PREDEC)
 				 {
-					 // Returns the incremented value.
-					 try
+					 // Counters stay as longs, one that would overflow is carried on as a double below.
+					 if (left.isInteger())
 					 {
-						float floatValue = Float.parseFloat(left.getType());
-						floatValue--;
-						// Sets the new value of the variable.
-						left.setType(Float.toString(floatValue));
-						// Returns the new value.
-						return new InterpreterDataType(Float.toString(floatValue));
+						 try
+						 {
+							 long originalValue = left.getInteger();
+							 long newValue = Math.decrementExact(originalValue);
+							 left.setInteger(newValue);
+							 return new InterpreterDataType(newValue);
+						 }
+						 catch (ArithmeticException e)
+						 {
+							 // Falls through to the double version.
+						 }
 					 }
 					 
-					 // Throws an exception when trying to increment anything other than a string.
-					 catch (NumberFormatException e)
-					 {
-						 throw new IllegalArgumentException("Can only increment number values.");
-					 }
+					 double numberValue = left.getNumber();
+					 numberValue--;
+					 // Sets the new value of the variable.
+					 left.setNumber(numberValue, conversion);
+					 // Returns the new value.
+					 return new InterpreterDataType(numberValue, conversion);
 				 }
 				 
 				 if (operation.getOperation() == OperationNode.operations.POSTDEC)
 				 {
-					 // Returns the incremented value.
-					 try
+					 // Counters stay as longs, one that would overflow is carried on as a double below.
+					 if (left.isInteger())
 					 {
-						float originalFloatValue = Float.parseFloat(left.getType());
-						float newFloatValue = originalFloatValue - 1;
-						// Sets the new value of the variable.
-						left.setType(Float.toString(newFloatValue));
-						// Returns the original value since increment happens after the operation.
-						return new InterpreterDataType(Float.toString(originalFloatValue));
+						 try
+						 {
+							 long originalValue = left.getInteger();
+							 long newValue = Math.decrementExact(originalValue);
+							 left.setInteger(newValue);
+							 return new InterpreterDataType(originalValue);
+						 }
+						 catch (ArithmeticException e)
+						 {
+							 // Falls through to the double version.
+						 }
 					 }
 					 
-					 // Throws an exception when trying to increment anything other than a string.
-					 catch (NumberFormatException e)
-					 {
-						 throw new IllegalArgumentException("Can only increment number values.");
-					 }
+					 double originalValue = left.getNumber();
+					 double newValue = originalValue - 1;
+					 // Sets the new value of the variable.
+					 left.setNumber(newValue, conversion);
+					 // Returns the original value since increment happens after the operation.
+					 return new InterpreterDataType(originalValue, conversion);
 				 }
 				 
 				 if (operation.getOperation() == OperationNode.operations.DOLLAR)
 				 {
-					 try
-					 {
-						 // Truncates decimal values and evaluates it as a whole number.
-						 int leftFloat = Integer.parseInt(left.getType());
-						 String variableReferenceName = "$" + leftFloat;
-						 
-						 // If the field reference already exists it will get the value and return it.
-						 if (globalVariables.containsKey(variableReferenceName))
-						 {
-							 InterpreterDataType value = globalVariables.get(variableReferenceName);
-							 return value;
-							 
-						 }
-						 
-						 // If the field reference does not exist it will make a new one and return the empty value.
-						 else
-						 {
-							 globalVariables.put(variableReferenceName, new InterpreterDataType(""));
-							 InterpreterDataType value = globalVariables.get(variableReferenceName);
-							 return value;
-						 }
-					 }
-					 catch (NumberFormatException e)
-					 {
+					 // A name that was not turned into a column number by a header is a mistake, not $0.
+					 if (!left.looksNumeric())
 						 throw new IllegalArgumentException("Field reference expression must be numerical.");
-					 }
+					
+					 // Truncates decimal values and evaluates it as a whole number.
+					 int fieldIndex = (int) left.getNumber();
+					
+					 // Gets the field from the current record, an empty one gets made if the field does not exist.
+					 return lm.GetField(fieldIndex);
 				 }
 				 
 				 if (operation.getOperation() == OperationNode.operations.NOT)
@@ -1868,45 +2456,33 @@ public class Interpreter
 					 // Checks if left is false (empty string or "0").
 					 // Returns true since not does the opposite.
 					 if (leftString.isEmpty() || leftString.equals("0"))
-						 return new InterpreterDataType("1");
+						 return InterpreterDataType.TRUE;
 					 
 					// Returns false since if it evaluates to true it does the opposite.
 					 else
-						 return new InterpreterDataType("0");
+						 return InterpreterDataType.FALSE;
 				 }
 				 
 				 // This only force converts a non-integer string to 0 so it can be evaluated as a number.
 				 if (operation.getOperation() == OperationNode.operations.UNARYPOS)
 				 {
-					// Checks if value is convertible to float.
-					 try
-					 {
-						 String leftString = left.getType();
-						 float leftFloat = Float.parseFloat(leftString);
-						 return new InterpreterDataType(Float.toString(leftFloat));
-					 }
-					// Assumes a non-integer string and simply sets the value to 0.
-					 catch (NumberFormatException e)
-					 {
-						 return new InterpreterDataType("0");
-					 }
+					 // Text that does not start with a number becomes 0.
+					 if (left.isInteger())
+						 return new InterpreterDataType(left.getInteger());
+					
+					 double leftNumber = left.getNumber();
+					 return new InterpreterDataType(leftNumber, conversion);
 				 }
 				 
 				 if (operation.getOperation() == OperationNode.operations.UNARYNEG)
 				 {
-					 // Checks if value is convertible to float.
-					 try
-					 {
-						 String leftString = left.getType();
-						 float leftFloat = Float.parseFloat(leftString);
-						 leftFloat = leftFloat * -1;
-						 return new InterpreterDataType(Float.toString(leftFloat));
-					 }
-					 // Assumes a non-integer string and simply sets the value to 0.
-					 catch (NumberFormatException e)
-					 {
-						 return new InterpreterDataType("0");
-					 }
+					 // Text that does not start with a number becomes 0.
+					 if (left.isInteger() && left.getInteger() != Long.MIN_VALUE)
+						 return new InterpreterDataType(-left.getInteger());
+					
+					 double leftNumber = left.getNumber();
+					 leftNumber = leftNumber * -1;
+					 return new InterpreterDataType(leftNumber, conversion);
 				 }
 			 }
 		}
@@ -1930,7 +2506,7 @@ public class Interpreter
 	}
 	
 	// Returns an empty string for now, will be implemented later on.
-	private String RunFunctionCall(FunctionCallNode fcn, HashMap<String, InterpreterDataType> locals)
+	private InterpreterDataType RunFunctionCall(FunctionCallNode fcn, HashMap<String, InterpreterDataType> locals)
 	{
 		String FunctionCallName = fcn.getName();
 		
@@ -1962,7 +2538,7 @@ public class Interpreter
 					for (int i = 1; i < fcn.getParameters().size(); i++)
 					{
 						// This will create custom numbered keys that the lambda functions can process.
-						printfParameters.getArrayType().put(Integer.toString(i - 1), GetIDT(fcn.getParameters().get(i), Optional.empty()));
+						printfParameters.getArrayType().put(NumberConverter.FormatInteger(i - 1), GetIDT(fcn.getParameters().get(i), Optional.empty()));
 					}
 					
 					// Inserts the non-variadic and variadic parameters of printf.
@@ -1977,13 +2553,13 @@ public class Interpreter
 					for (Node parameter : fcn.getParameters())
 					{
 						// This will create custom numbered keys that the lambda functions can process.
-						parameters.getArrayType().put(Integer.toString(i), GetIDT(parameter, Optional.empty()));
+						parameters.getArrayType().put(NumberConverter.FormatInteger(i), GetIDT(parameter, Optional.empty()));
 						i++;
 					}
 				}
 				
 				// Returns the result of the BuiltIn function's execution.
-				return builtIn.execute(parameters);
+				return new InterpreterDataType(builtIn.execute(parameters), NUMERIC_FUNCTIONS.contains(FunctionCallName));
 			}
 			
 			// This will process all user defined functions
@@ -2000,7 +2576,19 @@ public class Interpreter
 				for (String parameterName : fdn.getParameterNames())
 				{
 					// This will use the user defined parameter names as the keys to the local variables.
-					locals.put(parameterName, GetIDT(fcn.getParameters().get(i++), Optional.empty()));
+					InterpreterDataType parameter = GetIDT(fcn.getParameters().get(i++), Optional.empty());
+					// A record or field view can go stale if the function reads another record, so it gets decoded before it is kept.
+					if (parameter instanceof RecordDataType)
+						parameter.getType();
+					
+					// Constants and comparison results are shared, so the function gets its own copy that it can assign to.
+					if (parameter.isReadOnly())
+					{
+						InterpreterDataType copy = new InterpreterDataType();
+						copy.Assign(parameter);
+						parameter = copy;
+					}
+					locals.put(parameterName, parameter);
 				}
 				
 				ReturnType rt = InterpretListOfStatements(fdn.getStatements(), Optional.of(locals));
@@ -2021,12 +2609,12 @@ public class Interpreter
 						return rt.getReturnValue().get();
 					// Returns an empty string if return has no value to return.
 					else
-						return "";
+						return new InterpreterDataType("");
 				}
 				
 				// Returns an empty string if the function executed without interruption (typeReturned will be NORMAL).
 				else
-					return "";
+					return new InterpreterDataType("");
 			}
 		}
 		
@@ -1,25 +1,242 @@
 
+// Holds a value as a String, a number, or both.
+// Each form is only worked out from the other the first time it is asked for, so arithmetic on a value does not keep parsing and formatting it.
+// Numbers become Strings through the CONVFMT of the interpreter that made them, see NumberConverter.
 public class InterpreterDataType 
 {
+	// What a value is when comparing has to pick between numbers and Strings.
+	// STRNUM is text from the input that looks like a number, STRING is any other text, like the constants of the program or the result of a concatenation.
+	public enum Kinds {NUMBER, STRNUM, STRING}
+	
+	// The results of comparisons and logic, shared by every expression instead of made each time.
+	public static final InterpreterDataType TRUE = new InterpreterDataType(1L).ReadOnly();
+	public static final InterpreterDataType FALSE = new InterpreterDataType(0L).ReadOnly();
+	
+	// null when the value only exists as a number so far.
 	private String type;
+	// Only means something while hasNumber is set.
+	private double number;
+	private boolean hasNumber;
+	// Set when the number is a whole number held exactly in integer, so counters never have to go through a double.
+	private long integer;
+	private boolean integral;
+	// The CONVFMT to turn a number that is not whole into a String with, null for the default one.
+	private NumberConverter converter;
+	// null until something asks, then kept until the value changes.
+	private Kinds kind;
+	// Set on values that are shared, like constants of the program, a change to one would show up everywhere it is used.
+	private boolean readOnly;
+	// Set on text that came from the input, only that text can be a STRNUM.
+	private boolean input;
+	// Set when the text reads as a number, whether or not it came from the input.
+	private boolean whole;
 	
 	public InterpreterDataType()
 	{
 		type = null;
+		hasNumber = false;
 	}
 	
 	public InterpreterDataType(String type)
+	{
+		this(type, false);
+	}
+	
+	// Passing true makes the text compare as a number when it looks like one, the same as a field of the input.
+	public InterpreterDataType(String type, boolean input)
 	{
 		this.type = type;
+		this.input = input;
+		hasNumber = false;
+	}
+	
+	public InterpreterDataType(double number)
+	{
+		this(number, null);
+	}
+	
+	public InterpreterDataType(double number, NumberConverter converter)
+	{
+		type = null;
+		this.number = number;
+		this.converter = converter;
+		hasNumber = true;
+		integral = false;
+		kind = Kinds.NUMBER;
+	}
+	
+	public InterpreterDataType(long integer)
+	{
+		type = null;
+		this.integer = integer;
+		number = integer;
+		hasNumber = true;
+		integral = true;
+		kind = Kinds.NUMBER;
 	}
 	
 	public String getType()
 	{
+		if (type == null && integral)
+			type = NumberConverter.FormatInteger(integer);
+		else if (type == null && hasNumber)
+		{
+			// A shared number is converted every time it is asked for since CONVFMT can change between uses.
+			if (readOnly)
+				return ConvertNumber();
+			
+			type = ConvertNumber();
+		}
+		
 		return type;
 	}
 	
 	public void setType(String type)
 	{
+		if (readOnly)
+			throw new IllegalArgumentException("A constant value can not be changed.");
+		
 		this.type = type;
+		hasNumber = false;
+		integral = false;
+		kind = null;
+	}
+	
+	// Returns the value as a number, text that does not start with a number is 0 like it is in AWK.
+	public double getNumber()
+	{
+		if (!hasNumber)
+			ParseNumber(getSequence());
+		
+		return number;
+	}
+	
+	// Works out the kind of the value once, the same parse also fills in its number.
+	public Kinds getKind()
+	{
+		if (kind == null)
+			ParseNumber(getSequence());
+		
+		return kind;
+	}
+	
+	// Returns true when comparisons and print should treat the value as a number.
+	public boolean isNumeric()
+	{
+		return getKind() != Kinds.STRING;
+	}
+	
+	// Returns true for numbers and for any text that reads as one, for things like printf and $ that only care what the text says.
+	public boolean looksNumeric()
+	{
+		return getKind() == Kinds.NUMBER || whole;
+	}
+	
+	// Returns true when the value is a whole number that fits in a long, like "42" or the result of adding two of them.
+	public boolean isInteger()
+	{
+		getNumber();
+		return integral;
+	}
+	
+	// Only means something when isInteger is true.
+	public long getInteger()
+	{
+		getNumber();
+		return integer;
+	}
+	
+	public void setNumber(double number)
+	{
+		setNumber(number, null);
+	}
+	
+	// Subclasses see this as setType(null) so they can keep track of the change, the String is only made when something asks for it.
+	public void setNumber(double number, NumberConverter converter)
+	{
+		setType(null);
+		this.number = number;
+		this.converter = converter;
+		hasNumber = true;
+		integral = false;
+		kind = Kinds.NUMBER;
+	}
+	
+	public void setInteger(long integer)
+	{
+		setType(null);
+		this.integer = integer;
+		number = integer;
+		hasNumber = true;
+		integral = true;
+		kind = Kinds.NUMBER;
+	}
+	
+	// Works out the number and kind of the value up front and stops it from ever changing, so it can be shared.
+	public InterpreterDataType ReadOnly()
+	{
+		getKind();
+		if (integral)
+			getType();
+		
+		readOnly = true;
+		return this;
+	}
+	
+	public boolean isReadOnly()
+	{
+		return readOnly;
+	}
+	
+	// Copies value into this one, a number is copied as a number so it never has to be parsed again.
+	public void Assign(InterpreterDataType value)
+	{
+		if (value.type == null && value.integral)
+			setInteger(value.integer);
+		else if (value.type == null && value.hasNumber)
+			setNumber(value.number, value.converter);
+		else
+		{
+			setType(value.getType());
+			
+			if (value.hasNumber)
+			{
+				number = value.number;
+				integer = value.integer;
+				integral = value.integral;
+				hasNumber = true;
+			}
+			kind = value.kind;
+			whole = value.whole;
+		}
+		input = value.input;
+	}
+	
+	private String ConvertNumber()
+	{
+		if (converter == null)
+			return NumberConverter.ToString(number);
+		
+		return converter.Convert(number);
+	}
+	
+	// Parses straight from the record bytes when the value is still a view of them, so a field compared as a number never becomes a String.
+	// Each parse gets its own parser, values can be shared between threads and interpreters and the parser keeps its results in fields.
+	private void ParseNumber(CharSequence text)
+	{
+		NumberParser parser = new NumberParser();
+		parser.Parse(text);
+		number = parser.getNumber();
+		integer = parser.getInteger();
+		integral = parser.isIntegral();
+		hasNumber = true;
+		whole = parser.isWhole();
+		kind = input && whole ? Kinds.STRNUM : Kinds.STRING;
+	}
+	
+	// Returns the value for things like regular expressions that can work on any characters, not just a String.
+	public CharSequence getSequence()
+	{
+		return getType();
 	}
 }
@@ -4,24 +4,56 @@ import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.LinkedList;
-import java.util.Optional;
+import java.util.List;
 
 public class Main 
 {
 	public static void main(String args[])
 	{
-		if (args.length == 0)
+		InputOptions options = new InputOptions();
+		// Index of the first argument that is not an option.
+		int argumentIndex = 0;
+		
+		// Options come before the program file and all start with two dashes.
+		while (argumentIndex < args.length && args[argumentIndex].startsWith("--"))
 		{
-			System.out.println("Error: Invalid input: Usage: <AWK program file name/path> [<text file name/path>].");
+			if (args[argumentIndex].equals("--mmap"))
+				options.setMemoryMapped(true);
+			else if (args[argumentIndex].equals("--gzip"))
+				options.setGzip(true);
+			else if (args[argumentIndex].equals("--read-ahead"))
+				options.setReadAhead(true);
+			else if (args[argumentIndex].equals("--follow"))
+				options.setFollow(true);
+			else if (args[argumentIndex].equals("--csv"))
+				options.setCsv(true);
+			else if (args[argumentIndex].equals("--header"))
+				options.setHeader(true);
+			else
+			{
+				System.out.println("Error: Unknown option: " + args[argumentIndex] + ".");
+				return;
+			}
+			argumentIndex++;
+		}
+		
+		if (argumentIndex == args.length)
+		{
+			System.out.println("Error: Invalid input: Usage: [--mmap] [--gzip] [--read-ahead] [--follow] [--csv] [--header] <AWK program file name/path> [<text file name/path> ...].");
 			return;
 		}
 		
-		// Gets the length of the input.
-		int inputLength = args.length;
+		// A followed file never ends, so any file after it would never be read.
+		if (options.isFollow() && args.length - argumentIndex > 2)
+		{
+			System.out.println("Error: Invalid input: --follow can only read one text file.");
+			return;
+		}
 		
 		// This will hold the first file name from command line (This is assumed to be the AWK program file).
-		String fileName = args[0];
+		String fileName = args[argumentIndex];
 		// String fileName = "file.txt";
 		String fileContents = "";
 		Path myPath = Paths.get(fileName);
@@ -44,23 +76,19 @@ public class Main
 		// Parses the tokens into a program node for interpreter.
 	    ProgramNode node = pars.Parse();
 	    
-	    String textFileName;
-	    Path myTextPath;
-	    Interpreter interpreter;
-	    
-	    // Checks if the user provided an text file to work on.
-		if(inputLength == 2)
-		{
-		    // Gets an input text file for processing if provided.
-		    textFileName = args[1];
-			myTextPath = Paths.get(textFileName);
-			
-			// This will process the program node and optional text file.
-		    interpreter = new Interpreter(node, Optional.of(myTextPath));
-		}
+	    // Every argument after the program file is an input file, they get processed in order.
+	    List<Path> textPaths = new ArrayList<Path>();
+	    for (int i = argumentIndex + 1; i < args.length; i++)
+	    {
+	    	textPaths.add(Paths.get(args[i]));
+	    }
 	    
-		else
-			interpreter = new Interpreter(node, Optional.empty());
+	    // Reads from standard input when no text file is given so the program can be used in a pipeline.
+	    if (textPaths.isEmpty())
+	    	textPaths.add(Paths.get("-"));
+	
+	    // This will process the program node and the text files.
+	    Interpreter interpreter = new Interpreter(node, textPaths, options);
 	    
 	    // This executes the program.
 	    interpreter.InterpretProgram();
@@ -0,0 +1,125 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Reads records from a regular file by mapping it into memory one window at a time.
+// Records are found by scanning the mapped bytes and only get decoded into a String when GetRecord is called.
+public class MappedRecordReader extends RecordReader
+{
+	private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+	
+	private long windowSize;
+	
+	private FileChannel channel;
+	private long fileSize;
+	private MappedByteBuffer window;
+	// Offset in the file of the first byte in the window.
+	private long windowStart;
+	// Start of the bytes in the window that have not been handed out as a record yet.
+	private int position;
+	private int recordStart;
+	private int recordEnd;
+	// Decoded form of the current record, stays null until someone asks for it.
+	private String record;
+	private byte[] decodeBuffer;
+	
+	public MappedRecordReader(Path path) throws IOException
+	{
+		this(path, WINDOW_SIZE);
+	}
+	
+	public MappedRecordReader(Path path, long windowSize) throws IOException
+	{
+		this.windowSize = windowSize;
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+		fileSize = channel.size();
+		decodeBuffer = new byte[1024];
+		Map(0, windowSize);
+	}
+	
+	public boolean NextRecord() throws IOException
+	{
+		// Where to continue looking for the separator, this avoids rescanning bytes after a remap.
+		int scanFrom = position;
+		
+		while (true)
+		{
+			int limit = window.limit();
+			boolean atEnd = windowStart + limit >= fileSize;
+			
+			position = separator.SkipLeading(window, position, limit);
+			scanFrom = Math.max(scanFrom, position);
+			
+			if (separator.Find(window, position, scanFrom, limit, atEnd))
+			{
+				SetRecord(position, separator.getRecordEnd());
+				position = separator.getNextStart();
+				return true;
+			}
+			
+			if (atEnd)
+				return false;
+			
+			// Maps a new window that starts at the unfinished record, doubling it if the record alone fills the window.
+			int scanned = limit - position;
+			scanFrom = separator.getResumeFrom() - position;
+			Map(windowStart + position, Math.max(windowSize, 2L * scanned));
+		}
+	}
+	
+	public String GetRecord()
+	{
+		if (record == null)
+		{
+			int length = recordEnd - recordStart;
+			
+			if (decodeBuffer.length < length)
+				decodeBuffer = new byte[Math.max(length, decodeBuffer.length * 2)];
+			
+			window.get(recordStart, decodeBuffer, 0, length);
+			record = new String(decodeBuffer, 0, length, StandardCharsets.UTF_8);
+		}
+		return record;
+	}
+	
+	// Mapped windows stay valid after a remap, so the view can point right at the mapped bytes.
+	public CharSequence GetRecordView()
+	{
+		if (record == null && ByteScanner.IsAscii(window, recordStart, recordEnd))
+			return new ByteCharSequence(window, recordStart, recordEnd - recordStart);
+		
+		return GetRecord();
+	}
+	
+	// Pulls the pages of the first window into memory.
+	public void Prefetch() throws IOException
+	{
+		window.load();
+	}
+	
+	public void close() throws IOException
+	{
+		channel.close();
+	}
+	
+	// Marks the bytes between start and end as the current record.
+	private void SetRecord(int start, int end)
+	{
+		recordStart = start;
+		recordEnd = end;
+		record = null;
+	}
+	
+	// Maps up to size bytes of the file starting at offset.
+	private void Map(long offset, long size) throws IOException
+	{
+		size = Math.min(Math.min(size, fileSize - offset), Integer.MAX_VALUE);
+		
+		window = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+		windowStart = offset;
+		position = 0;
+	}
+}
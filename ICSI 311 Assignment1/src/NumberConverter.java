@@ -0,0 +1,318 @@
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.Locale;
+
+/*
+ * Turns numbers into Strings the way AWK does. Whole numbers are always written as integers,
+ * everything else goes through a printf style format like CONVFMT or OFMT.
+ * Java's %g keeps trailing zeros where C's does not, so %g formats are done here by hand instead of with String.format.
+ * Each Interpreter has its own instance holding its CONVFMT, the static methods only ever use the formats they are given.
+ */
+public class NumberConverter
+{
+	public static final String DEFAULT_FORMAT = "%.6g";
+	private static final int DEFAULT_PRECISION = 6;
+	// 2^63, every whole double below this in magnitude fits in a long and gets written out as an integer.
+	private static final double INTEGER_LIMIT = 0x1p63;
+	// Small whole numbers like counters and array indexes get the same String every time instead of a new one.
+	private static final String[] SMALL_INTEGERS = new String[1024];
+	// The largest precision the fast %g path handles, past this the digits no longer fit comfortably in a double.
+	private static final int FAST_PRECISION = 15;
+	private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+	
+	static
+	{
+		for (int i = 0; i < SMALL_INTEGERS.length; i++)
+			SMALL_INTEGERS[i] = Long.toString(i);
+	}
+	
+	// The value of CONVFMT, used by every value of the interpreter that has to make a String from its number.
+	private String conversionFormat;
+	// The precision of conversionFormat when it is a plain %g format, -1 when it is something else.
+	private int conversionPrecision;
+	
+	public NumberConverter()
+	{
+		conversionFormat = DEFAULT_FORMAT;
+		conversionPrecision = DEFAULT_PRECISION;
+	}
+	
+	public String getConversionFormat()
+	{
+		return conversionFormat;
+	}
+	
+	public void setConversionFormat(String format)
+	{
+		if (format == null)
+			return;
+		
+		conversionFormat = format;
+		conversionPrecision = GeneralPrecision(format);
+	}
+	
+	// Returns true while CONVFMT is still %.6g, when every converter gives the same Strings.
+	public boolean isDefault()
+	{
+		return conversionPrecision == DEFAULT_PRECISION;
+	}
+	
+	// Converts a number to a String with this interpreter's CONVFMT, this is what concatenation and array subscripts see.
+	public String Convert(double value)
+	{
+		if (IsInteger(value))
+			return FormatInteger((long) value);
+		
+		if (conversionPrecision != -1)
+			return FormatGeneral(value, conversionPrecision);
+		
+		return Format(value, conversionFormat);
+	}
+	
+	// Converts a number with the default CONVFMT, for values that do not belong to an interpreter.
+	public static String ToString(double value)
+	{
+		if (IsInteger(value))
+			return FormatInteger((long) value);
+		
+		return FormatGeneral(value, DEFAULT_PRECISION);
+	}
+	
+	// Converts a number with the given format, like print does with OFMT.
+	public static String ToString(double value, String format)
+	{
+		if (IsInteger(value))
+			return FormatInteger((long) value);
+		
+		return Format(value, format);
+	}
+	
+	public static String FormatInteger(long value)
+	{
+		if (value >= 0 && value < SMALL_INTEGERS.length)
+			return SMALL_INTEGERS[(int) value];
+		
+		return Long.toString(value);
+	}
+	
+	public static boolean IsInteger(double value)
+	{
+		return value == Math.rint(value) && value >= -INTEGER_LIMIT && value < INTEGER_LIMIT;
+	}
+	
+	// Formats value with a single printf style conversion.
+	public static String Format(double value, String format)
+	{
+		int precision = GeneralPrecision(format);
+		if (precision != -1)
+			return FormatGeneral(value, precision);
+		
+		if (Double.isNaN(value) || Double.isInfinite(value))
+			return NonFinite(value);
+		
+		char conversion = format.isEmpty() ? ' ' : format.charAt(format.length() - 1);
+		
+		// Java will not print a double with an integer conversion, so it gets truncated first like C would.
+		if (conversion == 'd' || conversion == 'i')
+			return String.format(Locale.ROOT, format.substring(0, format.length() - 1) + "d", (long) value);
+		
+		try
+		{
+			return String.format(Locale.ROOT, format, value);
+		}
+		catch (IllegalArgumentException e)
+		{
+			throw new IllegalArgumentException("Invalid number format: \"" + format + "\".");
+		}
+	}
+	
+	/*
+	 * Does what C's %.<precision>g does: the value is rounded to that many significant digits,
+	 * written in scientific notation when its exponent is below -4 or not below the precision,
+	 * and trailing zeros after the decimal point are left off.
+	 */
+	public static String FormatGeneral(double value, int precision)
+	{
+		if (Double.isNaN(value) || Double.isInfinite(value))
+			return NonFinite(value);
+		
+		if (value == 0)
+			return (1 / value < 0) ? "-0" : "0";
+		
+		if (precision == 0)
+			precision = 1;
+		
+		String fast = FormatGeneralFast(value, precision);
+		if (fast != null)
+			return fast;
+		
+		// The BigDecimal holds the exact value of the double, so rounding it gives the same digits C would.
+		BigDecimal rounded = new BigDecimal(value).round(new MathContext(precision, RoundingMode.HALF_EVEN));
+		int exponent = rounded.precision() - rounded.scale() - 1;
+		
+		if (exponent < -4 || exponent >= precision)
+		{
+			String digits = StripZeros(rounded.unscaledValue().abs().toString());
+			StringBuilder builder = new StringBuilder();
+			
+			if (rounded.signum() < 0)
+				builder.append('-');
+			builder.append(digits.charAt(0));
+			
+			if (digits.length() > 1)
+				builder.append('.').append(digits, 1, digits.length());
+			
+			builder.append(exponent < 0 ? "e-" : "e+");
+			if (Math.abs(exponent) < 10)
+				builder.append('0');
+			builder.append(Math.abs(exponent));
+			return builder.toString();
+		}
+		
+		String fixed = rounded.setScale(Math.max(0, precision - 1 - exponent), RoundingMode.HALF_EVEN).toPlainString();
+		
+		if (fixed.indexOf('.') != -1)
+		{
+			fixed = StripZeros(fixed);
+			if (fixed.endsWith("."))
+				fixed = fixed.substring(0, fixed.length() - 1);
+		}
+		return fixed;
+	}
+	
+	/*
+	 * Finds the digits by scaling the value with an exact power of ten, which is one rounding away from the real answer.
+	 * When the scaled value is so close to halfway between two digits that the rounding could have decided it,
+	 * this gives up and returns null so the exact BigDecimal version gets used instead.
+	 */
+	private static String FormatGeneralFast(double value, int precision)
+	{
+		if (precision > FAST_PRECISION)
+			return null;
+		
+		double magnitude = Math.abs(value);
+		int exponent = (int) Math.floor(Math.log10(magnitude));
+		long digits = -1;
+		
+		// log10 can be off by one right next to a power of ten, the digit count shows which way to fix it.
+		for (int attempt = 0; attempt < 2 && digits == -1; attempt++)
+		{
+			int shift = precision - 1 - exponent;
+			if (shift > 22 || shift < -22)
+				return null;
+			
+			double scaled = shift >= 0 ? magnitude * POWERS_OF_TEN[shift] : magnitude / POWERS_OF_TEN[-shift];
+			double floor = Math.floor(scaled);
+			
+			if (floor < POWERS_OF_TEN[precision - 1])
+				exponent--;
+			else if (floor >= POWERS_OF_TEN[precision])
+				exponent++;
+			else
+			{
+				double fraction = scaled - floor;
+				if (Math.abs(fraction - 0.5) <= scaled * 0x1p-50)
+					return null;
+				
+				digits = (long) floor + (fraction > 0.5 ? 1 : 0);
+			}
+		}
+		
+		if (digits == -1)
+			return null;
+		
+		// Rounding 9.99 up makes 10.0, which is one more digit than asked for.
+		if (digits == (long) POWERS_OF_TEN[precision])
+		{
+			digits /= 10;
+			exponent++;
+		}
+		
+		// The digits without their trailing zeros, written out from the end.
+		char[] buffer = new char[precision];
+		int count = precision;
+		while (count > 1 && digits % 10 == 0)
+		{
+			digits /= 10;
+			count--;
+		}
+		for (int i = count - 1; i >= 0; i--)
+		{
+			buffer[i] = (char) ('0' + digits % 10);
+			digits /= 10;
+		}
+		
+		StringBuilder builder = new StringBuilder(precision + 8);
+		if (value < 0)
+			builder.append('-');
+		
+		if (exponent < -4 || exponent >= precision)
+		{
+			builder.append(buffer[0]);
+			if (count > 1)
+				builder.append('.').append(buffer, 1, count - 1);
+			
+			builder.append(exponent < 0 ? "e-" : "e+");
+			if (Math.abs(exponent) < 10)
+				builder.append('0');
+			builder.append(Math.abs(exponent));
+		}
+		else if (exponent < 0)
+		{
+			builder.append("0.");
+			for (int i = -1; i > exponent; i--)
+				builder.append('0');
+			builder.append(buffer, 0, count);
+		}
+		else
+		{
+			// The digits before the point, padded with zeros when trailing zeros were taken off them.
+			for (int i = 0; i <= exponent; i++)
+				builder.append(i < count ? buffer[i] : '0');
+			
+			if (count > exponent + 1)
+				builder.append('.').append(buffer, exponent + 1, count - exponent - 1);
+		}
+		return builder.toString();
+	}
+	
+	// Returns the precision of a format that is just %g or %.<n>g, or -1 for any other format.
+	private static int GeneralPrecision(String format)
+	{
+		if (format.equals("%g"))
+			return DEFAULT_PRECISION;
+		
+		if (format.length() < 4 || !format.startsWith("%.") || !format.endsWith("g"))
+			return -1;
+		
+		int precision = 0;
+		for (int i = 2; i < format.length() - 1; i++)
+		{
+			char current = format.charAt(i);
+			if (current < '0' || current > '9' || precision > 100)
+				return -1;
+			
+			precision = precision * 10 + (current - '0');
+		}
+		return precision;
+	}
+	
+	private static String StripZeros(String digits)
+	{
+		int end = digits.length();
+		while (end > 1 && digits.charAt(end - 1) == '0')
+			end--;
+		
+		return digits.substring(0, end);
+	}
+	
+	private static String NonFinite(double value)
+	{
+		if (Double.isNaN(value))
+			return "nan";
+		
+		return value < 0 ? "-inf" : "inf";
+	}
+}
@@ -0,0 +1,190 @@
+/*
+ * Reads the number at the start of some text the way AWK does, so " 12abc" is 12 and "abc" is 0.
+ * It works on any CharSequence, including views of the input bytes, and never throws or makes substrings.
+ * One parser can be used over and over, but the results of the last Parse are kept in its fields, so it should only be used by one thread.
+ */
+public class NumberParser
+{
+	// Every power of ten up to 10^22 is exact in a double, which is what makes the fast path exact.
+	private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+	// Mantissas up to 2^53 are exact in a double.
+	private static final long EXACT_MANTISSA = 1L << 53;
+	// 18 digits always fit in a long.
+	private static final int MAXIMUM_INTEGER_DIGITS = 18;
+	
+	private double number;
+	private long integer;
+	private boolean integral;
+	private boolean whole;
+	
+	public double getNumber()
+	{
+		return number;
+	}
+	
+	// Only means something when isIntegral is true.
+	public long getInteger()
+	{
+		return integer;
+	}
+	
+	// Returns true when the number was written as a plain whole number that fits in a long, like "42" or "-7".
+	public boolean isIntegral()
+	{
+		return integral;
+	}
+	
+	// Returns true when the text was a number and nothing else, apart from blanks around it.
+	public boolean isWhole()
+	{
+		return whole;
+	}
+	
+	public void Parse(CharSequence text)
+	{
+		number = 0;
+		integer = 0;
+		integral = false;
+		whole = false;
+		
+		if (text == null)
+			return;
+		
+		int length = text.length();
+		int i = SkipBlanks(text, 0, length);
+		int numberStart = i;
+		boolean negative = false;
+		
+		if (i < length && (text.charAt(i) == '+' || text.charAt(i) == '-'))
+		{
+			negative = text.charAt(i) == '-';
+			i++;
+		}
+		
+		// The first 18 significant digits go into the mantissa, the rest only move the decimal point.
+		long mantissa = 0;
+		int significantDigits = 0;
+		int digits = 0;
+		int exponent = 0;
+		boolean dropped = false;
+		
+		for (; i < length && IsDigit(text.charAt(i)); i++)
+		{
+			digits++;
+			if (mantissa == 0 && text.charAt(i) == '0')
+				continue;
+			
+			if (significantDigits < MAXIMUM_INTEGER_DIGITS)
+			{
+				mantissa = mantissa * 10 + (text.charAt(i) - '0');
+				significantDigits++;
+			}
+			else
+			{
+				exponent++;
+				dropped |= text.charAt(i) != '0';
+			}
+		}
+		
+		boolean fraction = false;
+		if (i < length && text.charAt(i) == '.')
+		{
+			fraction = true;
+			i++;
+			
+			for (; i < length && IsDigit(text.charAt(i)); i++)
+			{
+				digits++;
+				if (mantissa == 0 && text.charAt(i) == '0')
+				{
+					exponent--;
+					continue;
+				}
+				
+				if (significantDigits < MAXIMUM_INTEGER_DIGITS)
+				{
+					mantissa = mantissa * 10 + (text.charAt(i) - '0');
+					significantDigits++;
+					exponent--;
+				}
+				else
+					dropped |= text.charAt(i) != '0';
+			}
+		}
+		
+		// Text that does not start with a number is 0.
+		if (digits == 0)
+			return;
+		
+		// An e only starts an exponent when digits come after it, otherwise the number ends before it.
+		boolean hasExponent = false;
+		if (i < length && (text.charAt(i) == 'e' || text.charAt(i) == 'E'))
+		{
+			int exponentStart = i + 1;
+			boolean negativeExponent = false;
+			
+			if (exponentStart < length && (text.charAt(exponentStart) == '+' || text.charAt(exponentStart) == '-'))
+			{
+				negativeExponent = text.charAt(exponentStart) == '-';
+				exponentStart++;
+			}
+			
+			if (exponentStart < length && IsDigit(text.charAt(exponentStart)))
+			{
+				hasExponent = true;
+				int written = 0;
+				
+				for (i = exponentStart; i < length && IsDigit(text.charAt(i)); i++)
+				{
+					// Anything this big is already past the range of a double.
+					if (written < 100000)
+						written = written * 10 + (text.charAt(i) - '0');
+				}
+				exponent += negativeExponent ? -written : written;
+			}
+		}
+		
+		int numberEnd = i;
+		whole = SkipBlanks(text, i, length) == length;
+		
+		if (!fraction && !hasExponent && digits <= MAXIMUM_INTEGER_DIGITS)
+		{
+			integer = negative ? -mantissa : mantissa;
+			integral = true;
+			number = integer;
+			return;
+		}
+		
+		// With a mantissa and power of ten that are both exact, one multiply or divide rounds correctly.
+		if (!dropped && mantissa < EXACT_MANTISSA && exponent >= -22 && exponent <= 22)
+		{
+			number = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+			if (negative)
+				number = -number;
+			return;
+		}
+		
+		if (mantissa == 0)
+		{
+			number = negative ? -0.0 : 0.0;
+			return;
+		}
+		
+		// Everything else is rare enough to hand to the exact parser.
+		number = Double.parseDouble(text.subSequence(numberStart, numberEnd).toString());
+	}
+	
+	private static int SkipBlanks(CharSequence text, int i, int length)
+	{
+		while (i < length && (text.charAt(i) == ' ' || text.charAt(i) == '\t' || text.charAt(i) == '\n' || text.charAt(i) == '\r'))
+			i++;
+		
+		return i;
+	}
+	
+	private static boolean IsDigit(char character)
+	{
+		return character >= '0' && character <= '9';
+	}
+}
@@ -34,6 +34,12 @@ public class OperationNode extends Node
 		return left;
 	}
 	
+	// Lets a column name be swapped for its field number once the header has been read.
+	public void setLeftNode(Node left)
+	{
+		this.left = left;
+	}
+	
 	public Optional<Node> getRightNode()
 	{
 		return right;
@@ -1562,7 +1562,7 @@ public class Parser
 		optionalToken = th.MatchAndRemove(Token.TokenType.NUMBER);
 		if (optionalToken.isPresent())
 		{
-			ConstantNode cn = new ConstantNode(optionalToken.get().getValue());
+			ConstantNode cn = new ConstantNode(optionalToken.get().getValue(), true);
 			return Optional.of(cn);
 		}
 		
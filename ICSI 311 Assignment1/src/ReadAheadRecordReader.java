@@ -0,0 +1,169 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+
+// Reads records from another reader on its own thread so reading the input and interpreting it happen at the same time.
+// Records are handed over in batches through a bounded ring of slots so the two threads do not need to sync on every record.
+public class ReadAheadRecordReader extends RecordReader
+{
+	private static final int BATCH_SIZE = 256;
+	private static final int BATCH_COUNT = 8;
+	
+	private static class Batch
+	{
+		private String[] records = new String[BATCH_SIZE];
+		// Number of records in the batch, -1 marks the end of the source.
+		private int count;
+	}
+	
+	private RecordReader source;
+	// Batches go back and forth between these two queues so no new batches are made after the constructor.
+	private ArrayBlockingQueue<Batch> filledBatches;
+	private ArrayBlockingQueue<Batch> emptyBatches;
+	private Thread reader;
+	private String threadName;
+	// Set by the reader thread before it sends the end batch when the source fails.
+	private volatile IOException failure;
+	
+	private Batch current;
+	private int position;
+	private boolean endOfInput;
+	private String record;
+	
+	public ReadAheadRecordReader(RecordReader source, String threadName)
+	{
+		this.source = source;
+		this.threadName = threadName;
+		filledBatches = new ArrayBlockingQueue<Batch>(BATCH_COUNT);
+		emptyBatches = new ArrayBlockingQueue<Batch>(BATCH_COUNT);
+		
+		for (int i = 0; i < BATCH_COUNT; i++)
+			emptyBatches.add(new Batch());
+	}
+	
+	// The separator can only change before the reader thread starts since it has already read ahead after that.
+	public void setSeparator(RecordSeparator separator)
+	{
+		if (reader == null)
+			source.setSeparator(separator);
+	}
+	
+	public boolean NextRecord() throws IOException
+	{
+		// Starts reading ahead on the first request so BEGIN blocks still get to set RS.
+		if (reader == null)
+		{
+			reader = new Thread(this::ReadSource, threadName);
+			// Does not keep the program alive once the interpreter is done.
+			reader.setDaemon(true);
+			reader.start();
+		}
+		
+		if (endOfInput)
+			return false;
+		
+		try
+		{
+			// Gives the batch back to the reader thread once all of its records have been used.
+			if (current != null && position == current.count)
+			{
+				emptyBatches.put(current);
+				current = null;
+			}
+			
+			// Waits for the reader thread when there is no batch to read from.
+			if (current == null)
+			{
+				current = filledBatches.take();
+				position = 0;
+				
+				if (current.count == -1)
+				{
+					endOfInput = true;
+					
+					if (failure != null)
+						throw failure;
+					
+					return false;
+				}
+			}
+			
+			record = current.records[position];
+			position++;
+			return true;
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for records.");
+		}
+	}
+	
+	public String GetRecord()
+	{
+		return record;
+	}
+	
+	public void Prefetch() throws IOException
+	{
+		source.Prefetch();
+	}
+	
+	public void close() throws IOException
+	{
+		if (reader != null)
+			reader.interrupt();
+		
+		source.close();
+	}
+	
+	// Runs on the reader thread, filling batches from the source until it runs out of records.
+	private void ReadSource()
+	{
+		Batch batch = null;
+		
+		try
+		{
+			while (true)
+			{
+				batch = emptyBatches.take();
+				batch.count = 0;
+				
+				while (batch.count < BATCH_SIZE && source.NextRecord())
+				{
+					batch.records[batch.count] = source.GetRecord();
+					batch.count++;
+				}
+				
+				if (batch.count == 0)
+					break;
+				
+				filledBatches.put(batch);
+				batch = null;
+			}
+		}
+		catch (IOException e)
+		{
+			failure = e;
+		}
+		catch (InterruptedException e)
+		{
+			// The reader was closed so nobody is waiting for the end batch.
+			return;
+		}
+		
+		// Sends the end batch, this is also how a failure gets reported to the reading side.
+		try
+		{
+			if (batch == null)
+				batch = emptyBatches.take();
+			
+			batch.count = -1;
+			filledBatches.put(batch);
+		}
+		catch (InterruptedException e)
+		{
+			return;
+		}
+	}
+}
@@ -0,0 +1,36 @@
+// Holds $0 or one of its fields as a view of the record and only turns it into a String once something needs one.
+// Values that are only matched against regular expressions or split into fields never get decoded this way.
+public class RecordDataType extends InterpreterDataType
+{
+	private CharSequence view;
+	
+	public RecordDataType(CharSequence view)
+	{
+		super(null, true);
+		this.view = view;
+	}
+	
+	public String getType()
+	{
+		if (view != null)
+		{
+			super.setType(view.toString());
+			view = null;
+		}
+		return super.getType();
+	}
+	
+	public void setType(String type)
+	{
+		view = null;
+		super.setType(type);
+	}
+	
+	public CharSequence getSequence()
+	{
+		if (view != null)
+			return view;
+		
+		return super.getType();
+	}
+}
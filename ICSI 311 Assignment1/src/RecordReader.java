@@ -0,0 +1,42 @@
+import java.io.Closeable;
+import java.io.IOException;
+
+// Base class for everything that can hand records to the LineManager one at a time.
+public abstract class RecordReader implements Closeable
+{
+	// Decides where each record ends, changes whenever the program assigns RS.
+	protected RecordSeparator separator = new RecordSeparator("\n");
+	
+	public void setSeparator(RecordSeparator separator)
+	{
+		this.separator = separator;
+	}
+	
+	// Moves to the next record, returns false once there are no more records in the input.
+	public abstract boolean NextRecord() throws IOException;
+	
+	// Returns the current record (the one found by the last successful NextRecord call).
+	public abstract String GetRecord();
+	
+	/*
+	 * Returns the current record without decoding it when that can be avoided, readers that keep records as bytes hand out
+	 * a ByteCharSequence over their buffer for records that are pure ASCII. The view of the latest record stays valid after
+	 * the reader moves on, older views may not.
+	 */
+	public CharSequence GetRecordView()
+	{
+		return GetRecord();
+	}
+	
+	// Reads ahead the start of the input so the first records are ready before they are asked for.
+	public void Prefetch() throws IOException
+	{
+		
+	}
+	
+	// Does nothing by default, readers holding an open resource will override this.
+	public void close() throws IOException
+	{
+		
+	}
+}
@@ -0,0 +1,443 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+// Finds where records end in a buffer of input bytes based on the value of RS.
+// The readers call Find over and over as more input arrives, so a record never needs more than itself in memory.
+public class RecordSeparator
+{
+	// NEWLINE is the default RS, PARAGRAPH is RS = "" where records are separated by blank lines.
+	// CSV ends records at newlines that are not inside quotes.
+	public enum Modes {NEWLINE, CHARACTER, REGEX, PARAGRAPH, CSV}
+	
+	// Anchors like $ and \b can look at up to this many characters past the end of a match.
+	private static final int LOOK_PAST = 2;
+	
+	private Modes mode;
+	private byte character;
+	private Pattern pattern;
+	// The most characters the pattern can match, -1 when there is no limit (like with + or *) and a regular expression has to be rescanned from the record start.
+	private int longestMatch;
+	
+	// Set by a successful Find, recordEnd is where the record stops and nextStart is where the record after it begins.
+	private int recordEnd;
+	private int nextStart;
+	// Set by an unsuccessful Find, this is where the next Find can pick up scanning once there are more bytes.
+	private int resumeFrom;
+	// Whether the CSV scan is inside quotes at resumeFrom.
+	private boolean quoted;
+	
+	public RecordSeparator(String rs)
+	{
+		this(rs, false);
+	}
+	
+	// In CSV mode RS is not used, records always end at a newline outside of quotes.
+	public RecordSeparator(String rs, boolean csv)
+	{
+		if (csv)
+			mode = Modes.CSV;
+		
+		else if (rs.isEmpty())
+			mode = Modes.PARAGRAPH;
+		
+		else if (rs.equals("\n"))
+		{
+			mode = Modes.NEWLINE;
+			character = '\n';
+		}
+		
+		else if (rs.length() == 1 && rs.charAt(0) < 128)
+		{
+			mode = Modes.CHARACTER;
+			character = (byte) rs.charAt(0);
+		}
+		
+		// A single character is always taken literally, it gets matched against its UTF-8 bytes since the input is never decoded.
+		else if (rs.length() == 1)
+		{
+			mode = Modes.REGEX;
+			String quoted = new String(rs.getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1);
+			pattern = Pattern.compile(Pattern.quote(quoted));
+			longestMatch = quoted.length();
+		}
+		
+		// Anything longer is a regular expression like in gawk.
+		else
+		{
+			mode = Modes.REGEX;
+			
+			try
+			{
+				pattern = Pattern.compile(rs);
+			}
+			catch (PatternSyntaxException e)
+			{
+				throw new IllegalArgumentException("Invalid RS regular expression \"" + rs + "\": " + e.getDescription() + ".");
+			}
+			longestMatch = LongestMatch(rs);
+		}
+	}
+	
+	public Modes getMode()
+	{
+		return mode;
+	}
+	
+	public int getRecordEnd()
+	{
+		return recordEnd;
+	}
+	
+	public int getNextStart()
+	{
+		return nextStart;
+	}
+	
+	public int getResumeFrom()
+	{
+		return resumeFrom;
+	}
+	
+	// Returns where the record really starts, paragraph mode ignores any newlines before a record.
+	public int SkipLeading(ByteBuffer bytes, int start, int limit)
+	{
+		if (mode == Modes.PARAGRAPH)
+		{
+			while (start < limit && (bytes.get(start) == '\n' || bytes.get(start) == '\r'))
+				start++;
+		}
+		return start;
+	}
+	
+	/*
+	 * Looks for the end of the record that begins at start, only looking at bytes from scanFrom onwards when that is safe.
+	 * atEnd says that no more bytes will come after limit, at which point whatever is left becomes the last record.
+	 * Returns true when a record was found, otherwise more bytes are needed (or there are no records left if atEnd is true).
+	 */
+	public boolean Find(ByteBuffer bytes, int start, int scanFrom, int limit, boolean atEnd)
+	{
+		if (mode == Modes.REGEX)
+			return FindPattern(bytes, start, scanFrom, limit, atEnd);
+		
+		if (mode == Modes.PARAGRAPH)
+			return FindBlankLine(bytes, start, scanFrom, limit, atEnd);
+		
+		if (mode == Modes.CSV)
+			return FindCsvLine(bytes, start, scanFrom, limit, atEnd);
+		
+		// Single byte separators get scanned for eight bytes at a time.
+		int found = ByteScanner.IndexOf(bytes, scanFrom, limit, character);
+		if (found != -1)
+		{
+			SetRecord(bytes, start, found, found + 1);
+			return true;
+		}
+		
+		resumeFrom = limit;
+		return FindLast(bytes, start, limit, atEnd);
+	}
+	
+	private boolean FindBlankLine(ByteBuffer bytes, int start, int scanFrom, int limit, boolean atEnd)
+	{
+		for (int i = scanFrom; i < limit; i++)
+		{
+			if (bytes.get(i) == '\n')
+			{
+				// Looks past the newline for a second one, allowing for Windows line endings.
+				int next = i + 1;
+				if (next < limit && bytes.get(next) == '\r')
+					next++;
+				
+				if (next < limit && bytes.get(next) == '\n')
+				{
+					// Any extra blank lines get skipped by SkipLeading before the next record.
+					SetRecord(bytes, start, i, next + 1);
+					return true;
+				}
+				
+				// Cannot tell if this newline starts a blank line until more bytes arrive.
+				if (next >= limit && !atEnd)
+				{
+					resumeFrom = i;
+					return false;
+				}
+			}
+		}
+		
+		resumeFrom = limit;
+		return FindLast(bytes, start, limit, atEnd);
+	}
+	
+	// Keeps track of quotes from the start of the record, a doubled quote switches twice so it does not change anything.
+	private boolean FindCsvLine(ByteBuffer bytes, int start, int scanFrom, int limit, boolean atEnd)
+	{
+		// A new record starts outside of quotes, otherwise this carries on from where the last Find stopped.
+		if (scanFrom == start)
+			quoted = false;
+		
+		for (int i = scanFrom; i < limit; i++)
+		{
+			byte current = bytes.get(i);
+			
+			if (current == '"')
+				quoted = !quoted;
+			
+			else if (current == '\n' && !quoted)
+			{
+				SetRecord(bytes, start, i, i + 1);
+				return true;
+			}
+		}
+		
+		resumeFrom = limit;
+		return FindLast(bytes, start, limit, atEnd);
+	}
+	
+	/*
+	 * A match can begin before the previous limit and only finish in the new bytes, so the scan goes back the longest the pattern can match.
+	 * Any match that starts further back than that was already ruled out by the last Find, so long records do not get rescanned from their start.
+	 */
+	private boolean FindPattern(ByteBuffer bytes, int start, int scanFrom, int limit, boolean atEnd)
+	{
+		Matcher matcher = pattern.matcher(new ByteCharSequence(bytes, 0, limit));
+		int from = start;
+		
+		if (longestMatch == -1)
+			resumeFrom = start;
+		else
+		{
+			from = Math.max(start, scanFrom - longestMatch - LOOK_PAST);
+			resumeFrom = limit;
+		}
+		
+		while (from <= limit && matcher.find(from))
+		{
+			// A match that touches the end might keep going with more input so it has to wait unless the input is done.
+			if (matcher.hitEnd() && !atEnd)
+				return false;
+			
+			// Empty matches would never move forward, so it keeps looking past them.
+			if (matcher.end() > matcher.start())
+			{
+				recordEnd = matcher.start();
+				nextStart = matcher.end();
+				return true;
+			}
+			from = matcher.end() + 1;
+		}
+		
+		return FindLast(bytes, start, limit, atEnd);
+	}
+	
+	/*
+	 * Adds up the longest match of a regular expression, taking the longest side of every | and the upper bound of every {n,m}.
+	 * Returns -1 for anything without a limit like * or +, and for the rarer constructs (lookarounds, back references, flags) rather than following them.
+	 */
+	private static int LongestMatch(String regex)
+	{
+		int[] position = {0};
+		int longest = LongestAlternation(regex, position);
+		
+		// Anything left over is a ) the groups did not account for, which is not worth guessing about.
+		if (position[0] != regex.length())
+			return -1;
+		
+		return longest;
+	}
+	
+	// Goes up to the ) that closes the current group, or the end of the regular expression.
+	private static int LongestAlternation(String regex, int[] position)
+	{
+		int longest = 0;
+		
+		while (true)
+		{
+			int sequence = LongestSequence(regex, position);
+			if (sequence == -1)
+				return -1;
+			longest = Math.max(longest, sequence);
+			
+			if (position[0] < regex.length() && regex.charAt(position[0]) == '|')
+				position[0]++;
+			else
+				return longest;
+		}
+	}
+	
+	private static int LongestSequence(String regex, int[] position)
+	{
+		int total = 0;
+		
+		while (position[0] < regex.length())
+		{
+			char current = regex.charAt(position[0]);
+			int atom;
+			
+			if (current == '|' || current == ')')
+				return total;
+			
+			if (current == '(')
+			{
+				// Only plain groups are followed, lookarounds and flags can see past the match or change what it matches.
+				if (regex.startsWith("(?:", position[0]))
+					position[0] += 3;
+				else if (regex.startsWith("(?", position[0]))
+					return -1;
+				else
+					position[0]++;
+				
+				atom = LongestAlternation(regex, position);
+				if (atom == -1 || position[0] >= regex.length())
+					return -1;
+				position[0]++;
+			}
+			
+			else if (current == '[')
+			{
+				// A class always matches one character, ] straight after the opening bracket is left alone since it could be either.
+				int end = EndOfClass(regex, position[0]);
+				if (end == -1)
+					return -1;
+				
+				atom = 1;
+				position[0] = end;
+			}
+			
+			else if (current == '\\')
+			{
+				if (position[0] + 1 >= regex.length())
+					return -1;
+				
+				// Escapes like \d, \s and \. match one character and \b, \A and \z match none, anything else is not followed.
+				char escaped = regex.charAt(position[0] + 1);
+				if ("bBAzZG".indexOf(escaped) != -1)
+					atom = 0;
+				else if (Character.isLetterOrDigit(escaped) && "dDsSwWhHvVtnrfae".indexOf(escaped) == -1)
+					return -1;
+				else
+					atom = 1;
+				position[0] += 2;
+			}
+			
+			else if (current == '^' || current == '$')
+			{
+				atom = 0;
+				position[0]++;
+			}
+			
+			else
+			{
+				atom = 1;
+				position[0]++;
+			}
+			
+			if (position[0] < regex.length())
+			{
+				char quantifier = regex.charAt(position[0]);
+				
+				if (quantifier == '*' || quantifier == '+')
+					return -1;
+				
+				if (quantifier == '?')
+					position[0]++;
+				
+				else if (quantifier == '{')
+				{
+					int close = regex.indexOf('}', position[0]);
+					if (close == -1)
+						return -1;
+					
+					// {n} and {n,m} repeat at most n or m times, {n,} has no limit.
+					String bounds = regex.substring(position[0] + 1, close);
+					String upper = bounds.substring(bounds.indexOf(',') + 1).trim();
+					if (upper.isEmpty() || upper.length() > 6)
+						return -1;
+					
+					for (int i = 0; i < upper.length(); i++)
+					{
+						if (!Character.isDigit(upper.charAt(i)))
+							return -1;
+					}
+					
+					atom *= Integer.parseInt(upper);
+					position[0] = close + 1;
+				}
+				
+				// A lazy or possessive quantifier matches no more than the greedy one.
+				if (quantifier == '?' || quantifier == '{')
+				{
+					if (position[0] < regex.length() && (regex.charAt(position[0]) == '?' || regex.charAt(position[0]) == '+'))
+						position[0]++;
+				}
+				
+				// A quantifier on a quantifier is not worth working out.
+				if (position[0] < regex.length() && "*+?{".indexOf(regex.charAt(position[0])) != -1)
+					return -1;
+			}
+			
+			total += atom;
+		}
+		return total;
+	}
+	
+	// Returns the index just past the ] that closes the class starting at start, classes can have classes inside them.
+	private static int EndOfClass(String regex, int start)
+	{
+		int depth = 0;
+		
+		for (int i = start; i < regex.length(); i++)
+		{
+			char current = regex.charAt(i);
+			
+			if (current == '\\')
+				i++;
+			else if (current == '[')
+			{
+				if (i + 1 < regex.length() && regex.charAt(i + 1) == ']')
+					return -1;
+				if (i + 2 < regex.length() && regex.charAt(i + 1) == '^' && regex.charAt(i + 2) == ']')
+					return -1;
+				depth++;
+			}
+			else if (current == ']' && --depth == 0)
+				return i + 1;
+		}
+		return -1;
+	}
+	
+	// At the end of the input, whatever comes after the last separator is the last record.
+	private boolean FindLast(ByteBuffer bytes, int start, int limit, boolean atEnd)
+	{
+		if (!atEnd)
+			return false;
+		
+		int end = limit;
+		
+		// Paragraphs can end with newlines that do not make a full blank line.
+		if (mode == Modes.PARAGRAPH)
+		{
+			while (end > start && (bytes.get(end - 1) == '\n' || bytes.get(end - 1) == '\r'))
+				end--;
+		}
+		
+		if (end > start)
+		{
+			SetRecord(bytes, start, end, limit);
+			return true;
+		}
+		return false;
+	}
+	
+	// Saves where the record ends, dropping the carriage return of Windows line endings.
+	private void SetRecord(ByteBuffer bytes, int start, int end, int next)
+	{
+		if (mode != Modes.CHARACTER && mode != Modes.REGEX && end > start && bytes.get(end - 1) == '\r')
+			end--;
+		
+		recordEnd = end;
+		nextStart = next;
+	}
+}
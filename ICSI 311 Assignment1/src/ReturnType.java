@@ -4,7 +4,7 @@ public class ReturnType
 {
 	public enum ReturnTypes{NORMAL, BREAK, CONTINUE, RETURN}
 	private ReturnTypes typeReturned;
-	private Optional<String> returnValue;
+	private Optional<InterpreterDataType> returnValue;
 	
 	public ReturnType(ReturnTypes typeReturned)
 	{
@@ -12,7 +12,7 @@ public class ReturnType
 		returnValue = Optional.empty(); // Defined as an empty string so the .isEmpty method can work for cases where return does not have a return value.
 	}
 	
-	public ReturnType(ReturnTypes typeReturned, Optional<String> returnValue)
+	public ReturnType(ReturnTypes typeReturned, Optional<InterpreterDataType> returnValue)
 	{
 		this.typeReturned = typeReturned;
 		this.returnValue = returnValue;
@@ -23,7 +23,7 @@ public class ReturnType
 		return typeReturned;
 	}
 	
-	public Optional<String> getReturnValue()
+	public Optional<InterpreterDataType> getReturnValue()
 	{
 		return returnValue;
 	}
@@ -0,0 +1,154 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Reads records from a stream through a fixed size buffer so memory stays the same no matter how large the input is.
+public class StreamRecordReader extends RecordReader
+{
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	private InputStream input;
+	private byte[] buffer;
+	// Wraps buffer so the separator can scan it the same way as a memory mapped file.
+	private ByteBuffer bytes;
+	// Start of the bytes that have not been handed out as a record yet.
+	private int position;
+	// End of the valid bytes in the buffer.
+	private int limit;
+	// How many bytes of the stream came before the first byte in the buffer.
+	private long bufferOffset;
+	private boolean endOfInput;
+	private int recordStart;
+	private int recordEnd;
+	// Decoded form of the current record, stays null until someone asks for it.
+	private String record;
+	// The byte view handed out for the current record, it gets its own copy of the bytes before Fill overwrites them.
+	private ByteCharSequence recordView;
+	
+	public StreamRecordReader(InputStream input)
+	{
+		this(input, BUFFER_SIZE);
+	}
+	
+	public StreamRecordReader(InputStream input, int bufferSize)
+	{
+		this.input = input;
+		buffer = new byte[bufferSize];
+		bytes = ByteBuffer.wrap(buffer);
+		position = 0;
+		limit = 0;
+		bufferOffset = 0;
+		endOfInput = false;
+	}
+	
+	public boolean NextRecord() throws IOException
+	{
+		// Where to continue looking for the separator, this avoids rescanning bytes after a refill.
+		int scanFrom = position;
+		
+		while (true)
+		{
+			position = separator.SkipLeading(bytes, position, limit);
+			scanFrom = Math.max(scanFrom, position);
+			
+			if (separator.Find(bytes, position, scanFrom, limit, endOfInput))
+			{
+				SetRecord(position, separator.getRecordEnd());
+				position = separator.getNextStart();
+				return true;
+			}
+			
+			if (endOfInput)
+				return false;
+			
+			// Keeps the scan offset relative to the record start since Fill moves the record to the front of the buffer.
+			scanFrom = separator.getResumeFrom() - position;
+			Fill();
+			scanFrom += position;
+		}
+	}
+	
+	public String GetRecord()
+	{
+		if (record == null)
+			record = new String(buffer, recordStart, recordEnd - recordStart, StandardCharsets.UTF_8);
+		return record;
+	}
+	
+	public CharSequence GetRecordView()
+	{
+		if (record != null)
+			return record;
+		
+		if (recordView == null)
+		{
+			// Anything outside of ASCII has to be decoded to get the right characters.
+			if (!ByteScanner.IsAscii(bytes, recordStart, recordEnd))
+				return GetRecord();
+			
+			recordView = new ByteCharSequence(bytes, recordStart, recordEnd - recordStart);
+		}
+		return recordView;
+	}
+	
+	// Returns how many bytes of the stream have been used up by the records handed out so far.
+	public long getOffset()
+	{
+		return bufferOffset + position;
+	}
+	
+	public void Prefetch() throws IOException
+	{
+		Fill();
+	}
+	
+	public void close() throws IOException
+	{
+		input.close();
+	}
+	
+	// Marks the bytes between start and end as the current record.
+	private void SetRecord(int start, int end)
+	{
+		recordStart = start;
+		recordEnd = end;
+		record = null;
+		recordView = null;
+	}
+	
+	// Moves the unfinished record to the front of the buffer and reads more bytes after it.
+	private void Fill() throws IOException
+	{
+		if (position > 0)
+		{
+			// The current record is about to be written over, so a view that is still out there needs its own bytes.
+			if (recordView != null)
+			{
+				recordView.Detach();
+				recordView = null;
+			}
+			
+			System.arraycopy(buffer, position, buffer, 0, limit - position);
+			bufferOffset += position;
+			limit -= position;
+			position = 0;
+		}
+		
+		// Only grows when a single record is larger than the whole buffer.
+		if (limit == buffer.length)
+		{
+			byte[] larger = new byte[buffer.length * 2];
+			System.arraycopy(buffer, 0, larger, 0, limit);
+			buffer = larger;
+			bytes = ByteBuffer.wrap(buffer);
+		}
+		
+		int read = input.read(buffer, limit, buffer.length - limit);
+		
+		if (read == -1)
+			endOfInput = true;
+		else
+			limit += read;
+	}
+}
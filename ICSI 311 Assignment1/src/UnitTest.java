@@ -1,8 +1,18 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -240,6 +250,876 @@ public class UnitTest
 	    interpreter.InterpretProgram();
 	}
 	
+	@Test
+	public void streamRecordReaderTest() throws IOException
+	{
+		// Uses a buffer smaller than the records so the reader has to refill and grow while looking for the separator.
+		ByteArrayInputStream input = new ByteArrayInputStream("first record\r\nsecond\n\nlast without separator".getBytes());
+		StreamRecordReader reader = new StreamRecordReader(input, 4);
+		
+		Assert.assertTrue(reader.NextRecord());
+		Assert.assertEquals(reader.GetRecord(), "first record");
+		Assert.assertTrue(reader.NextRecord());
+		Assert.assertEquals(reader.GetRecord(), "second");
+		Assert.assertTrue(reader.NextRecord());
+		Assert.assertEquals(reader.GetRecord(), "");
+		Assert.assertTrue(reader.NextRecord());
+		Assert.assertEquals(reader.GetRecord(), "last without separator");
+		Assert.assertTrue(!reader.NextRecord());
+		
+		reader.close();
+	}
+	
+	@Test
+	public void mappedRecordReaderTest() throws IOException
+	{
+		// Uses a window smaller than the first line so records have to cross into a new, larger window.
+		MappedRecordReader reader = new MappedRecordReader(Paths.get("String-file.txt"), 8);
+		
+		Assert.assertTrue(reader.NextRecord());
+		Assert.assertEquals(reader.GetRecord(), "This Is A Test File With Some Text.");
+		Assert.assertTrue(reader.NextRecord());
+		Assert.assertEquals(reader.GetRecord(), "This is some more text with a 1.");
+		Assert.assertTrue(reader.NextRecord());
+		Assert.assertEquals(reader.GetRecord(), "11111");
+		Assert.assertTrue(!reader.NextRecord());
+		
+		reader.close();
+	}
+	
+	@Test
+	public void multipleInputFilesTest()
+	{
+		Lexer lexer = new Lexer("{print FILENAME, FNR, NR}");
+		LinkedList<Token> tokens = lexer.Lex();
+	    Parser parser = new Parser(tokens);
+	    ProgramNode node = parser.Parse();
+	
+	    // The second file is opened in the background while the first one is being read.
+	    List<Path> paths = List.of(Paths.get("String-file.txt"), Paths.get("input-processing.txt"));
+	    Interpreter interpreter = new Interpreter(node, paths, new InputOptions());
+	
+	    // Like in AWK, FILENAME is empty until the first record is read.
+	    Assert.assertEquals(interpreter.globalVariables.get("FILENAME").getType(), "");
+	
+	    // Reads all of the first file.
+	    for (int i = 0; i < 3; i++)
+	    	interpreter.lm.SplitAndAssign();
+	
+	    Assert.assertEquals(interpreter.globalVariables.get("FILENAME").getType(), "String-file.txt");
+	    Assert.assertEquals(interpreter.globalVariables.get("FNR").getType(), "3");
+	
+	    // FNR starts over for the second file while NR keeps counting.
+	    interpreter.lm.SplitAndAssign();
+	
+	    Assert.assertEquals(interpreter.globalVariables.get("FILENAME").getType(), "input-processing.txt");
+	    Assert.assertEquals(interpreter.globalVariables.get("FNR").getType(), "1");
+	    Assert.assertEquals(interpreter.globalVariables.get("NR").getType(), "4");
+	    Assert.assertEquals(interpreter.lm.GetField(0).getType(), "# This will print all lines in a text file.");
+	    interpreter.lm.Close();
+	
+	    // A file that can not be opened is skipped and never becomes FILENAME.
+	    paths = List.of(Paths.get("String-file.txt"), Paths.get("missing-file.txt"));
+	    interpreter = new Interpreter(node, paths, new InputOptions());
+	    for (int i = 0; i < 3; i++)
+	    	Assert.assertTrue(interpreter.lm.SplitAndAssign());
+	    Assert.assertTrue(!interpreter.lm.SplitAndAssign());
+	
+	    Assert.assertEquals(interpreter.globalVariables.get("FILENAME").getType(), "String-file.txt");
+	    Assert.assertEquals(interpreter.globalVariables.get("FNR").getType(), "3");
+	    interpreter.lm.Close();
+	}
+	
+	@Test
+	public void standardInputTest() throws IOException
+	{
+		Lexer lexer = new Lexer("{print $2}");
+		LinkedList<Token> tokens = lexer.Lex();
+	    Parser parser = new Parser(tokens);
+	    ProgramNode node = parser.Parse();
+	
+	    // Swaps standard input for a stream of two lines, "-" is the file name for standard input.
+	    InputStream originalInput = System.in;
+	    System.setIn(new ByteArrayInputStream("piped line one\npiped line two\n".getBytes()));
+	
+	    Interpreter interpreter = new Interpreter(node, List.of(Paths.get("-")), new InputOptions());
+	
+	    // Prints out the test it is on.
+	    System.out.println("\nStandard Input Test:\n");
+	
+	    // This will print "line" twice.
+	    interpreter.InterpretProgram();
+	
+	    System.setIn(originalInput);
+	    Assert.assertEquals(interpreter.globalVariables.get("NR").getType(), "2");
+	
+	    // A program with only BEGIN blocks leaves its input alone.
+	    System.setIn(new ByteArrayInputStream("piped line one\n".getBytes()));
+	    lexer = new Lexer("BEGIN {x = 1}");
+	    parser = new Parser(lexer.Lex());
+	    interpreter = new Interpreter(parser.Parse(), List.of(Paths.get("-")), new InputOptions());
+	    interpreter.InterpretProgram();
+	
+	    Assert.assertEquals(System.in.available(), 15);
+	    System.setIn(originalInput);
+	    Assert.assertEquals(interpreter.globalVariables.get("NR").getType(), "0");
+	}
+	
+	@Test
+	public void gzipInputTest() throws IOException
+	{
+		Lexer lexer = new Lexer("{print}");
+		LinkedList<Token> tokens = lexer.Lex();
+	    Parser parser = new Parser(tokens);
+	    ProgramNode node = parser.Parse();
+	
+	    // Compresses a copy of String-file.txt, the .gz ending is what turns on decompression.
+	    Path compressedPath = Files.createTempFile("String-file", ".txt.gz");
+	    try (GZIPOutputStream output = new GZIPOutputStream(Files.newOutputStream(compressedPath)))
+	    {
+	    	output.write(Files.readAllBytes(Paths.get("String-file.txt")));
+	    }
+	
+	    Interpreter interpreter = new Interpreter(node, Optional.of(compressedPath));
+	
+	    // Reads the decompressed lines that were handed over from the decompression thread.
+	    interpreter.lm.SplitAndAssign();
+	    Assert.assertEquals(interpreter.lm.GetField(0).getType(), "This Is A Test File With Some Text.");
+	    interpreter.lm.SplitAndAssign();
+	    interpreter.lm.SplitAndAssign();
+	    Assert.assertEquals(interpreter.lm.GetField(0).getType(), "11111");
+	    Assert.assertTrue(!interpreter.lm.SplitAndAssign());
+	
+	    Files.delete(compressedPath);
+	}
+	
+	@Test
+	public void recordSeparatorTest() throws IOException
+	{
+		// Paragraph mode (RS = ""), records are separated by blank lines and can span several lines.
+		StreamRecordReader reader = new StreamRecordReader(new ByteArrayInputStream("\n\nfirst\nparagraph\n\n\n\nsecond\n".getBytes()), 4);
+		reader.setSeparator(new RecordSeparator(""));
+		
+		Assert.assertTrue(reader.NextRecord());
+		Assert.assertEquals(reader.GetRecord(), "first\nparagraph");
+		Assert.assertTrue(reader.NextRecord());
+		Assert.assertEquals(reader.GetRecord(), "second");
+		Assert.assertTrue(!reader.NextRecord());
+		
+		// A single character separator.
+		reader = new StreamRecordReader(new ByteArrayInputStream("a;b;;c".getBytes()), 4);
+		reader.setSeparator(new RecordSeparator(";"));
+		
+		Assert.assertTrue(reader.NextRecord());
+		Assert.assertEquals(reader.GetRecord(), "a");
+		Assert.assertTrue(reader.NextRecord());
+		Assert.assertEquals(reader.GetRecord(), "b");
+		Assert.assertTrue(reader.NextRecord());
+		Assert.assertEquals(reader.GetRecord(), "");
+		Assert.assertTrue(reader.NextRecord());
+		Assert.assertEquals(reader.GetRecord(), "c");
+		Assert.assertTrue(!reader.NextRecord());
+		
+		// A regular expression separator, the buffer is small enough that a separator gets split across refills.
+		reader = new StreamRecordReader(new ByteArrayInputStream("one--two---three".getBytes()), 4);
+		reader.setSeparator(new RecordSeparator("-+"));
+		
+		Assert.assertTrue(reader.NextRecord());
+		Assert.assertEquals(reader.GetRecord(), "one");
+		Assert.assertTrue(reader.NextRecord());
+		Assert.assertEquals(reader.GetRecord(), "two");
+		Assert.assertTrue(reader.NextRecord());
+		Assert.assertEquals(reader.GetRecord(), "three");
+		Assert.assertTrue(!reader.NextRecord());
+		
+		// A separator with a longest match only goes back that far after a refill, which still finds one split across refills.
+		reader = new StreamRecordReader(new ByteArrayInputStream("a long first record<br>second record<br/>third".getBytes()), 4);
+		reader.setSeparator(new RecordSeparator("<br/?>"));
+		
+		Assert.assertTrue(reader.NextRecord());
+		Assert.assertEquals(reader.GetRecord(), "a long first record");
+		Assert.assertTrue(reader.NextRecord());
+		Assert.assertEquals(reader.GetRecord(), "second record");
+		Assert.assertTrue(reader.NextRecord());
+		Assert.assertEquals(reader.GetRecord(), "third");
+		Assert.assertTrue(!reader.NextRecord());
+	}
+	
+	@Test (expected = IllegalArgumentException.class)
+	public void invalidRecordSeparatorTest()
+	{
+		new RecordSeparator("(ab");
+	}
+	
+	@Test
+	public void readAheadRecordReaderTest() throws IOException
+	{
+		// Builds more records than fit in a single batch so the reader thread has to hand over several.
+		StringBuilder text = new StringBuilder();
+		for (int i = 1; i <= 1000; i++)
+			text.append("record ").append(i).append("\n");
+		
+		ReadAheadRecordReader reader = new ReadAheadRecordReader(new StreamRecordReader(new ByteArrayInputStream(text.toString().getBytes()), 16), "test-read-ahead");
+		
+		for (int i = 1; i <= 1000; i++)
+		{
+			Assert.assertTrue(reader.NextRecord());
+			Assert.assertEquals(reader.GetRecord(), "record " + i);
+		}
+		Assert.assertTrue(!reader.NextRecord());
+		
+		reader.close();
+	}
+	
+	@Test
+	public void followRecordReaderTest() throws IOException
+	{
+		// Pretends an earlier run already finished the first line (3 bytes), so 1 record of the file was read.
+		Path logPath = Files.createTempFile("follow", ".log");
+		Path statePath = Paths.get(logPath.toString() + ".offset");
+		Files.writeString(logPath, "l1\nl2\nl3\n");
+		Files.writeString(statePath, "3 1\n");
+		
+		FollowRecordReader reader = new FollowRecordReader(logPath);
+		Assert.assertEquals(reader.getSavedRecordNumber(), 1L);
+		
+		// Picks up at the second line instead of rescanning the file.
+		Assert.assertTrue(reader.NextRecord());
+		Assert.assertEquals(reader.GetRecord(), "l2");
+		
+		// Closing saves the offset after the second line along with the file's record count.
+		reader.Checkpoint(2);
+		reader.close();
+		Assert.assertEquals(Files.readString(statePath), "6 2\n");
+		
+		// The interpreter picks FNR up from the saved count and adds it to NR, which can already hold records from before.
+		InputOptions options = new InputOptions();
+		options.setFollow(true);
+		Interpreter interpreter = new Interpreter(new ProgramNode(), List.of(logPath), options);
+		interpreter.globalVariables.put("NR", new InterpreterDataType(5L));
+		
+		Assert.assertTrue(interpreter.lm.SplitAndAssign());
+		Assert.assertEquals(interpreter.lm.GetField(0).getType(), "l3");
+		Assert.assertEquals(interpreter.globalVariables.get("FNR").getType(), "3");
+		Assert.assertEquals(interpreter.globalVariables.get("NR").getType(), "8");
+		
+		// A state file that is cut short or is not two counts gets reported with its name instead of failing to parse.
+		for (String state : new String[] {"", "6\n", "6 x\n", "-6 2\n"})
+		{
+			Files.writeString(statePath, state);
+			boolean reported = false;
+			try
+			{
+				new FollowRecordReader(logPath).close();
+			}
+			catch (IOException e)
+			{
+				reported = e.getMessage().contains(statePath.toString());
+			}
+			Assert.assertTrue(reported);
+		}
+		
+		// A state file past the end of the file is from before the file was rotated, so it starts from the beginning.
+		Files.writeString(statePath, "100 9\n");
+		reader = new FollowRecordReader(logPath);
+		Assert.assertEquals(reader.getSavedRecordNumber(), 0L);
+		Assert.assertTrue(reader.NextRecord());
+		Assert.assertEquals(reader.GetRecord(), "l1");
+		reader.close();
+		
+		// Truncating the file while it is followed starts it over, FNR starts again but NR keeps counting.
+		Files.delete(statePath);
+		interpreter = new Interpreter(new ProgramNode(), List.of(logPath), options);
+		for (int i = 0; i < 3; i++)
+			Assert.assertTrue(interpreter.lm.SplitAndAssign());
+		Files.writeString(logPath, "n1\n");
+		
+		Assert.assertTrue(interpreter.lm.SplitAndAssign());
+		Assert.assertEquals(interpreter.lm.GetField(0).getType(), "n1");
+		Assert.assertEquals(interpreter.globalVariables.get("FNR").getType(), "1");
+		Assert.assertEquals(interpreter.globalVariables.get("NR").getType(), "4");
+		Assert.assertEquals(Files.readString(statePath), "0 0\n");
+		
+		Files.delete(statePath);
+		Files.delete(logPath);
+	}
+	
+	@Test
+	public void recordViewTest() throws IOException
+	{
+		// The buffer is small enough that reading the last record moves the bytes of the one before it.
+		ByteArrayInputStream input = new ByteArrayInputStream("ascii line\ncafé\nend of the input".getBytes(StandardCharsets.UTF_8));
+		StreamRecordReader reader = new StreamRecordReader(input, 16);
+		
+		Assert.assertTrue(reader.NextRecord());
+		CharSequence ascii = reader.GetRecordView();
+		Assert.assertTrue(ascii instanceof ByteCharSequence);
+		Assert.assertEquals(ascii.toString(), "ascii line");
+		
+		// Records with UTF-8 characters get decoded instead.
+		Assert.assertTrue(reader.NextRecord());
+		CharSequence decoded = reader.GetRecordView();
+		Assert.assertTrue(decoded instanceof String);
+		Assert.assertEquals(decoded, "café");
+		
+		Assert.assertTrue(reader.NextRecord());
+		CharSequence last = reader.GetRecordView();
+		Assert.assertTrue(!reader.NextRecord());
+		Assert.assertEquals(last.toString(), "end of the input");
+		
+		reader.close();
+		
+		// $0 only becomes a String when it is asked for one.
+		RecordDataType record = new RecordDataType(last);
+		Assert.assertTrue(record.getSequence() == last);
+		Assert.assertEquals(record.getType(), "end of the input");
+	}
+	
+	@Test
+	public void lazyFieldSplittingTest()
+	{
+		Lexer lexer = new Lexer("{print NF}");
+		LinkedList<Token> tokens = lexer.Lex();
+	    Parser parser = new Parser(tokens);
+	    ProgramNode node = parser.Parse();
+	    Interpreter interpreter = new Interpreter(node, Optional.of(Paths.get("String-file.txt")));
+	
+	    // Reading a record leaves the fields alone until something asks for them.
+	    interpreter.lm.SplitAndAssign();
+	    Assert.assertTrue(!interpreter.lm.fields.Contains(1));
+	
+	    // FS changes only apply to the next record, even though this one has not been split yet.
+	    interpreter.globalVariables.get("FS").setType("e");
+	    Assert.assertEquals(interpreter.globalVariables.get("NF").getType(), "8");
+	    Assert.assertEquals(interpreter.lm.GetField(2).getType(), "Is");
+	
+	    interpreter.lm.SplitAndAssign();
+	    Assert.assertEquals(interpreter.lm.GetField(0).getType(), "This is some more text with a 1.");
+	    Assert.assertTrue(!interpreter.lm.fields.Contains(2));
+	    interpreter.lm.SplitFields();
+	    Assert.assertEquals(interpreter.lm.GetField(2).getType(), " mor");
+	}
+	
+	@Test
+	public void fieldStoreTest()
+	{
+		FieldStore fields = new FieldStore();
+		
+		// Setting past the end grows the store.
+		for (int i = 0; i <= 20; i++)
+			fields.Set(i, new InterpreterDataType(Integer.toString(i)));
+		Assert.assertEquals(fields.Get(20).getType(), "20");
+		
+		// Clearing forgets every field, even though the old ones are still in the array.
+		fields.Clear();
+		Assert.assertTrue(!fields.Contains(3));
+		fields.Set(0, new InterpreterDataType("new record"));
+		fields.Set(2, new InterpreterDataType("b"));
+		Assert.assertTrue(!fields.Contains(1));
+		Assert.assertEquals(fields.Get(1).getType(), "");
+		Assert.assertEquals(fields.Get(2).getType(), "b");
+		Assert.assertTrue(!fields.Contains(3));
+	}
+	
+	@Test
+	public void fieldSplitterTest()
+	{
+		// The default FS ignores blanks at the ends and treats runs of them as one separator.
+		FieldSplitter splitter = new FieldSplitter(" ", false);
+		Assert.assertEquals(splitter.getMode(), FieldSplitter.Modes.WHITESPACE);
+		Assert.assertEquals(splitter.Split("  one \t two  "), 2);
+		Assert.assertEquals("  one \t two  ".substring(splitter.getStart(1), splitter.getEnd(1)), "two");
+		Assert.assertEquals(splitter.Split(" \t "), 0);
+		
+		// Any other FS keeps empty fields, including the one after a trailing separator.
+		splitter = new FieldSplitter("|", false);
+		Assert.assertEquals(splitter.getMode(), FieldSplitter.Modes.CHARACTER);
+		Assert.assertEquals(splitter.Split("a||b|"), 4);
+		
+		splitter = new FieldSplitter("::", false);
+		Assert.assertEquals(splitter.getMode(), FieldSplitter.Modes.LITERAL);
+		Assert.assertEquals(splitter.Split("a:::b::"), 3);
+		Assert.assertEquals(splitter.getStart(1), 3);
+		
+		splitter = new FieldSplitter("[0-9]+", false);
+		Assert.assertEquals(splitter.getMode(), FieldSplitter.Modes.REGEX);
+		Assert.assertEquals(splitter.Split("a12b3c"), 3);
+		
+		// Newlines separate fields in paragraph mode.
+		splitter = new FieldSplitter(",", true);
+		Assert.assertEquals(splitter.Split("a,b\nc"), 3);
+		Assert.assertTrue(splitter.Matches(",", true, FieldSplitter.Formats.SEPARATED));
+		Assert.assertTrue(!splitter.Matches(",", false, FieldSplitter.Formats.SEPARATED));
+	}
+	
+	@Test
+	public void fieldViewTest()
+	{
+		ByteBuffer buffer = ByteBuffer.wrap("alpha beta gamma".getBytes(StandardCharsets.US_ASCII));
+		ByteCharSequence record = new ByteCharSequence(buffer, 0, buffer.limit());
+		FieldSplitter splitter = new FieldSplitter(" ", false);
+		splitter.Split(record);
+		
+		FieldStore fields = new FieldStore();
+		fields.Set(0, new RecordDataType(record));
+		fields.Split(record, splitter);
+		
+		// Fields are views of the record until they get used as a String.
+		InterpreterDataType second = fields.Get(2);
+		Assert.assertTrue(second.getSequence() instanceof ByteCharSequence);
+		Assert.assertTrue(fields.Contains(3));
+		Assert.assertTrue(!fields.Contains(4));
+		
+		// Views still read the same after the reader copies the record out of a buffer it is about to reuse.
+		record.Detach();
+		buffer.put(6, (byte) 'X');
+		Assert.assertEquals(second.getType(), "beta");
+		Assert.assertEquals(fields.Get(3).getType(), "gamma");
+	}
+	
+	@Test
+	public void recordRebuildTest()
+	{
+		Lexer lexer = new Lexer("{print NF}");
+		LinkedList<Token> tokens = lexer.Lex();
+	    Parser parser = new Parser(tokens);
+	    ProgramNode node = parser.Parse();
+	    Interpreter interpreter = new Interpreter(node, Optional.of(Paths.get("String-file.txt")));
+	    interpreter.lm.SplitAndAssign();
+	    interpreter.globalVariables.get("OFS").setType("-");
+	
+	    // Assigning a field only rebuilds $0 (with OFS) once $0 is read.
+	    interpreter.lm.GetField(2).setType("Was");
+	    interpreter.lm.GetField(9).setType("Here");
+	    Assert.assertEquals(interpreter.globalVariables.get("NF").getType(), "9");
+	    Assert.assertEquals(interpreter.lm.GetField(0).getType(), "This-Was-A-Test-File-With-Some-Text.-Here");
+	
+	    // Assigning $0 splits it again the next time a field is read.
+	    interpreter.lm.GetField(0).setType("one two");
+	    Assert.assertEquals(interpreter.lm.GetField(2).getType(), "two");
+	    Assert.assertEquals(interpreter.globalVariables.get("NF").getType(), "2");
+	
+	    // A smaller NF drops fields.
+	    interpreter.globalVariables.get("NF").setType("1");
+	    Assert.assertEquals(interpreter.lm.GetField(0).getType(), "one");
+	    Assert.assertEquals(interpreter.lm.GetField(2).getType(), "");
+	}
+	
+	@Test
+	public void fieldUsageTest()
+	{
+		// Only constant fields are used, so records are split up to $4 and no further.
+		Lexer lexer = new Lexer("{print $1, $4}\nEND {print $2}");
+		LinkedList<Token> tokens = lexer.Lex();
+	    Parser parser = new Parser(tokens);
+	    Assert.assertEquals(new FieldUsage(parser.Parse()).getFieldLimit(), 4);
+	
+	    // NF, computed fields and assigning a field all need every field.
+	    lexer = new Lexer("{print $NF}");
+	    parser = new Parser(lexer.Lex());
+	    Assert.assertEquals(new FieldUsage(parser.Parse()).getFieldLimit(), Integer.MAX_VALUE);
+	
+	    lexer = new Lexer("{$2 = \"x\"}");
+	    parser = new Parser(lexer.Lex());
+	    Assert.assertEquals(new FieldUsage(parser.Parse()).getFieldLimit(), Integer.MAX_VALUE);
+	
+	    // The splitter stops looking once it has enough fields.
+	    FieldSplitter splitter = new FieldSplitter(",", false);
+	    splitter.setLimit(2);
+	    Assert.assertEquals(splitter.Split("a,b,c,d"), 2);
+	    Assert.assertEquals(splitter.getEnd(1), 3);
+	}
+	
+	@Test
+	public void fieldWidthsTest()
+	{
+		FieldSplitter splitter = new FieldSplitter("3 2 *", false, FieldSplitter.Formats.FIXED_WIDTH);
+		Assert.assertEquals(splitter.getMode(), FieldSplitter.Modes.FIXED_WIDTH);
+		Assert.assertEquals(splitter.Split("ABC12rest of it"), 3);
+		Assert.assertEquals(splitter.getStart(2), 5);
+		Assert.assertEquals(splitter.getEnd(2), 15);
+		
+		// A short record only gets the fields it has room for.
+		Assert.assertEquals(splitter.Split("ABC1"), 2);
+		Assert.assertEquals(splitter.getEnd(1), 4);
+		
+		Lexer lexer = new Lexer("BEGIN {FIELDWIDTHS = \"5 3\"} {print $1, $2}");
+		LinkedList<Token> tokens = lexer.Lex();
+	    Parser parser = new Parser(tokens);
+	    ProgramNode node = parser.Parse();
+	    Interpreter interpreter = new Interpreter(node, Optional.of(Paths.get("String-file.txt")));
+	    interpreter.globalVariables.get("FIELDWIDTHS").setType("5 3");
+	
+	    interpreter.lm.SplitAndAssign();
+	    Assert.assertEquals(interpreter.lm.GetField(1).getType(), "This ");
+	    Assert.assertEquals(interpreter.lm.GetField(2).getType(), "Is ");
+	
+	    // Assigning FS goes back to splitting on it.
+	    interpreter.globalVariables.get("FS").setType("s");
+	    interpreter.lm.SplitAndAssign();
+	    Assert.assertEquals(interpreter.lm.GetField(1).getType(), "Thi");
+	
+	    // Assigning FS the value it already has still switches back from FIELDWIDTHS.
+	    lexer = new Lexer("BEGIN {FIELDWIDTHS = \"3 4\"\nFS = \" \"}\nNR == 1 {first = $1}");
+	    parser = new Parser(lexer.Lex());
+	    interpreter = new Interpreter(parser.Parse(), Optional.of(Paths.get("String-file.txt")));
+	    interpreter.InterpretProgram();
+	    Assert.assertEquals(interpreter.globalVariables.get("first").getType(), "This");
+	
+	    lexer = new Lexer("BEGIN {FIELDWIDTHS = \"3 4\"\nFS = FS}\nNR == 1 {first = $1}");
+	    parser = new Parser(lexer.Lex());
+	    interpreter = new Interpreter(parser.Parse(), Optional.of(Paths.get("String-file.txt")));
+	    interpreter.InterpretProgram();
+	    Assert.assertEquals(interpreter.globalVariables.get("first").getType(), "This");
+	}
+	
+	@Test
+	public void csvTest() throws IOException
+	{
+		// The small buffer makes the quoted newline get found across refills.
+		String csv = "id,name,note\r\n1,\"Smith, John\",\"said \"\"hi\"\"\"\n2,\"two\nlines\",\n";
+		StreamRecordReader reader = new StreamRecordReader(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), 8);
+		reader.setSeparator(new RecordSeparator("\n", true));
+		FieldSplitter splitter = new FieldSplitter(" ", false, FieldSplitter.Formats.CSV);
+		
+		Assert.assertTrue(reader.NextRecord());
+		Assert.assertEquals(reader.GetRecord(), "id,name,note");
+		
+		Assert.assertTrue(reader.NextRecord());
+		String record = reader.GetRecord();
+		Assert.assertEquals(splitter.Split(record), 3);
+		Assert.assertEquals(record.substring(splitter.getStart(1), splitter.getEnd(1)), "Smith, John");
+		Assert.assertEquals(splitter.getValue(1), null);
+		Assert.assertEquals(splitter.getValue(2), "said \"hi\"");
+		
+		// A newline inside quotes does not end the record, and the trailing comma makes an empty last field.
+		Assert.assertTrue(reader.NextRecord());
+		record = reader.GetRecord();
+		Assert.assertEquals(splitter.Split(record), 3);
+		Assert.assertEquals(record.substring(splitter.getStart(1), splitter.getEnd(1)), "two\nlines");
+		Assert.assertEquals(splitter.getStart(2), splitter.getEnd(2));
+		Assert.assertTrue(!reader.NextRecord());
+		
+		reader.close();
+	}
+	
+	@Test
+	public void byteScannerTest()
+	{
+		// Tries every start offset so the separator lands in every byte of the long, and in the bytes after the last full long.
+		byte[] data = "ab\u00e9\tcd\tefghijklmnopqrs\tt".getBytes(StandardCharsets.ISO_8859_1);
+		ByteBuffer buffer = ByteBuffer.wrap(data);
+		
+		for (int from = 0; from < data.length; from++)
+		{
+			int expected = -1;
+			for (int i = from; i < data.length && expected == -1; i++)
+			{
+				if (data[i] == '\t')
+					expected = i;
+			}
+			Assert.assertEquals(ByteScanner.IndexOf(buffer, from, data.length, (byte) '\t'), expected);
+		}
+		Assert.assertEquals(ByteScanner.IndexOf(buffer, 0, data.length, (byte) 0xE9), 2);
+		Assert.assertEquals(ByteScanner.IndexOf(buffer, 0, data.length, (byte) 'z'), -1);
+		
+		Assert.assertTrue(!ByteScanner.IsAscii(buffer, 0, data.length));
+		Assert.assertTrue(ByteScanner.IsAscii(buffer, 3, data.length));
+		
+		// Views made by subSequence search relative to themselves.
+		CharSequence view = new ByteCharSequence(buffer, 0, data.length).subSequence(4, data.length);
+		Assert.assertEquals(((ByteCharSequence) view).IndexOf((byte) '\t', 0), 2);
+	}
+	
+	@Test
+	public void headerTest() throws IOException
+	{
+		Path file = Files.createTempFile("header", ".csv");
+		Files.writeString(file, "name,price\napple,3\n");
+		InputOptions options = new InputOptions();
+		options.setCsv(true);
+		options.setHeader(true);
+		
+		Lexer lexer = new Lexer("{print $\"price\", $\"name\"}");
+	    Parser parser = new Parser(lexer.Lex());
+	    ProgramNode node = parser.Parse();
+	    Interpreter interpreter = new Interpreter(node, List.of(file), options);
+	
+	    // The header is read as column names and does not count as a record.
+	    interpreter.lm.SplitAndAssign();
+	    Assert.assertEquals(interpreter.lm.getColumnNames(), List.of("name", "price"));
+	    Assert.assertEquals(interpreter.globalVariables.get("NR").getType(), "1");
+	    Assert.assertEquals(interpreter.lm.GetField(1).getType(), "apple");
+	
+	    // Each name becomes the number of its column, so records only get split as far as $2.
+	    Assert.assertEquals(new FieldUsage(node, interpreter.lm.getColumnNames()).getFieldLimit(), 2);
+	    OperationNode print = (OperationNode) ((FunctionCallNode) node.getBlocks().getFirst().getStatements().getFirst()).getParameters().getFirst();
+	    Assert.assertEquals(((ConstantNode) print.getLeftNode()).getConstantValue(), "2");
+	
+	    Files.delete(file);
+	}
+	
+	@Test
+	public void numberCacheTest()
+	{
+		// A number only gets turned into a String when something asks for one.
+		InterpreterDataType value = new InterpreterDataType(2.5f);
+		Assert.assertTrue(value.getNumber() == 2.5f);
+		Assert.assertEquals(value.getType(), "2.5");
+		
+		// Assigning copies the number along with the text, and setType forgets the old number.
+		InterpreterDataType target = new InterpreterDataType("x");
+		target.Assign(value);
+		Assert.assertTrue(target.getNumber() == 2.5f);
+		target.setType("4");
+		Assert.assertTrue(target.getNumber() == 4f);
+		
+		// A field assigned a number still marks $0 for rebuilding.
+		FieldStore fields = new FieldStore();
+		fields.SetRecord("a b");
+		fields.Get(1).setNumber(3f);
+		Assert.assertTrue(fields.isFieldsChanged());
+		Assert.assertEquals(fields.Get(1).getType(), "3");
+	}
+	
+	@Test
+	public void numberConverterTest()
+	{
+		// Whole numbers are integers whatever the format says, other numbers follow %g the way C does it.
+		Assert.assertEquals(NumberConverter.ToString(16777217), "16777217");
+		Assert.assertEquals(NumberConverter.ToString(0.1), "0.1");
+		Assert.assertEquals(NumberConverter.ToString(1.0 / 3), "0.333333");
+		Assert.assertEquals(NumberConverter.ToString(123456.7), "123457");
+		Assert.assertEquals(NumberConverter.ToString(1234567.5), "1.23457e+06");
+		Assert.assertEquals(NumberConverter.ToString(0.00001234), "1.234e-05");
+		Assert.assertEquals(NumberConverter.ToString(2.5, "%.2f"), "2.50");
+		
+		// Any whole number that fits in a long is written out in full.
+		Assert.assertEquals(NumberConverter.ToString(Math.pow(2, 60)), "1152921504606846976");
+		Assert.assertEquals(NumberConverter.ToString(-1e18), "-1000000000000000000");
+		Assert.assertEquals(NumberConverter.ToString(1e19), "1e+19");
+		
+		// Adding one to a float stops working past 16777216, a double keeps counting.
+		InterpreterDataType total = new InterpreterDataType("16777216");
+		total.setNumber(total.getNumber() + 1);
+		Assert.assertEquals(total.getType(), "16777217");
+		
+		// CONVFMT belongs to one interpreter, another one still converts with the default.
+		Lexer lexer = new Lexer("BEGIN {CONVFMT = \"%.2g\"\nx = 1 / 3\ny = x \"\"}");
+	    Parser parser = new Parser(lexer.Lex());
+	    Interpreter changed = new Interpreter(parser.Parse(), Optional.empty());
+	    lexer = new Lexer("BEGIN {x = 1 / 3\ny = x \"\"}");
+	    parser = new Parser(lexer.Lex());
+	    Interpreter unchanged = new Interpreter(parser.Parse(), Optional.empty());
+	    changed.InterpretProgram();
+	    unchanged.InterpretProgram();
+	    Assert.assertEquals(changed.globalVariables.get("y").getType(), "0.33");
+	    Assert.assertEquals(unchanged.globalVariables.get("y").getType(), "0.333333");
+	}
+	
+	@Test
+	public void integerArithmeticTest()
+	{
+		// Whole numbers are added as longs, so this stays exact past where a double would round it.
+		Lexer lexer = new Lexer("BEGIN {x = 999999999999999999 + 1\ny = x + 1\nz = 7 / 2\nw = 6 / 3}");
+	    Parser parser = new Parser(lexer.Lex());
+	    Interpreter interpreter = new Interpreter(parser.Parse(), Optional.empty());
+	    interpreter.InterpretProgram();
+	    Assert.assertEquals(interpreter.globalVariables.get("y").getType(), "1000000000000000001");
+	    Assert.assertTrue(interpreter.globalVariables.get("y").isInteger());
+	    Assert.assertEquals(interpreter.globalVariables.get("z").getType(), "3.5");
+	    Assert.assertEquals(interpreter.globalVariables.get("w").getType(), "2");
+	
+	    // A counter that would overflow carries on as a double.
+	    InterpreterDataType counter = new InterpreterDataType(Long.MAX_VALUE);
+	    Assert.assertTrue(counter.isInteger());
+	    counter.setType("12");
+	    Assert.assertTrue(counter.isInteger());
+	    counter.setType("12.5");
+	    Assert.assertTrue(!counter.isInteger());
+	
+	    // Comparisons see the same exact values as arithmetic does.
+	    lexer = new Lexer("BEGIN {a = 100000000000000001\nb = 100000000000000000\nc = a == b\nd = a > b\ne = a - b}");
+	    parser = new Parser(lexer.Lex());
+	    interpreter = new Interpreter(parser.Parse(), Optional.empty());
+	    interpreter.InterpretProgram();
+	    Assert.assertEquals(interpreter.globalVariables.get("c").getType(), "0");
+	    Assert.assertEquals(interpreter.globalVariables.get("d").getType(), "1");
+	    Assert.assertEquals(interpreter.globalVariables.get("e").getType(), "1");
+	}
+	
+	@Test
+	public void numericKindTest() throws IOException
+	{
+		// Only text from the input can be a STRNUM, text from the program is always a STRING.
+		Assert.assertEquals(new InterpreterDataType(" 12 ", true).getKind(), InterpreterDataType.Kinds.STRNUM);
+		Assert.assertEquals(new InterpreterDataType("-1.5e3", true).getKind(), InterpreterDataType.Kinds.STRNUM);
+		Assert.assertEquals(new InterpreterDataType("12abc", true).getKind(), InterpreterDataType.Kinds.STRING);
+		Assert.assertEquals(new InterpreterDataType("1e", true).getKind(), InterpreterDataType.Kinds.STRING);
+		Assert.assertEquals(new InterpreterDataType(".", true).getKind(), InterpreterDataType.Kinds.STRING);
+		Assert.assertEquals(new InterpreterDataType(" 12 ").getKind(), InterpreterDataType.Kinds.STRING);
+		Assert.assertEquals(new RecordDataType("12").getKind(), InterpreterDataType.Kinds.STRNUM);
+		Assert.assertEquals(new InterpreterDataType(3L).getKind(), InterpreterDataType.Kinds.NUMBER);
+		
+		// String constants, concatenations and String functions compare as Strings, counts and positions compare as numbers.
+		Lexer lexer = new Lexer("BEGIN {a = \"10\" < \"9\"\nb = \"10\" < \"9x\"\nc = \"abc\" == \"abc\"\nd = (1 \"0\") < 9\ne = substr(\"10\", 1) < 9\nf = length(\"abcdefghij\") < 9\ng = x == 0}");
+	    Parser parser = new Parser(lexer.Lex());
+	    Interpreter interpreter = new Interpreter(parser.Parse(), Optional.empty());
+	    interpreter.InterpretProgram();
+	    Assert.assertEquals(interpreter.globalVariables.get("a").getType(), "1");
+	    Assert.assertEquals(interpreter.globalVariables.get("b").getType(), "1");
+	    Assert.assertEquals(interpreter.globalVariables.get("c").getType(), "1");
+	    Assert.assertEquals(interpreter.globalVariables.get("d").getType(), "1");
+	    Assert.assertEquals(interpreter.globalVariables.get("e").getType(), "1");
+	    Assert.assertEquals(interpreter.globalVariables.get("f").getType(), "0");
+	    Assert.assertEquals(interpreter.globalVariables.get("g").getType(), "1");
+	
+	    // Fields that look like numbers compare as numbers, and a function returns the kind of the value it was given.
+	    Path file = Files.createTempFile("kinds", ".txt");
+	    Files.writeString(file, "10 9 1.0\n");
+	    lexer = new Lexer("function same(v) {return v}\n{a = $1 < $2\nb = $3 == 1\nc = $3 == \"1\"\nd = same($1) < same($2)\ne = NF == 3}");
+	    parser = new Parser(lexer.Lex());
+	    interpreter = new Interpreter(parser.Parse(), List.of(file), new InputOptions());
+	    interpreter.InterpretProgram();
+	    Assert.assertEquals(interpreter.globalVariables.get("a").getType(), "0");
+	    Assert.assertEquals(interpreter.globalVariables.get("b").getType(), "1");
+	    Assert.assertEquals(interpreter.globalVariables.get("c").getType(), "0");
+	    Assert.assertEquals(interpreter.globalVariables.get("d").getType(), "0");
+	    Assert.assertEquals(interpreter.globalVariables.get("e").getType(), "1");
+	    Files.delete(file);
+	
+	    // Changing the value forgets its kind.
+	    InterpreterDataType value = new InterpreterDataType("5", true);
+	    Assert.assertTrue(value.isNumeric());
+	    value.setType("five");
+	    Assert.assertTrue(!value.isNumeric());
+	}
+	
+	@Test
+	public void numberParserTest() throws InterruptedException
+	{
+		NumberParser numberParser = new NumberParser();
+		
+		// Only the number at the start counts, and text without one is 0.
+		numberParser.Parse(" 12abc");
+		Assert.assertTrue(numberParser.getNumber() == 12);
+		Assert.assertTrue(numberParser.isIntegral());
+		Assert.assertTrue(!numberParser.isWhole());
+		numberParser.Parse("abc");
+		Assert.assertTrue(numberParser.getNumber() == 0);
+		Assert.assertTrue(!numberParser.isWhole());
+		
+		numberParser.Parse("1e3");
+		Assert.assertTrue(numberParser.getNumber() == 1000);
+		Assert.assertTrue(!numberParser.isIntegral());
+		numberParser.Parse("-0.1 ");
+		Assert.assertTrue(numberParser.getNumber() == -0.1);
+		Assert.assertTrue(numberParser.isWhole());
+		numberParser.Parse("123456789012345678901234567890");
+		Assert.assertTrue(numberParser.getNumber() == 1.2345678901234568e29);
+		
+		// Small whole numbers come back as the same String every time.
+		Assert.assertTrue(NumberConverter.FormatInteger(42) == NumberConverter.FormatInteger(42));
+		Assert.assertEquals(NumberConverter.FormatInteger(-42), "-42");
+		Assert.assertEquals(NumberConverter.FormatGeneral(0.1 + 0.2, 6), "0.3");
+		Assert.assertEquals(NumberConverter.FormatGeneral(123456789, 6), "1.23457e+08");
+		Assert.assertEquals(NumberConverter.FormatGeneral(0.000012345, 3), "1.23e-05");
+		
+		// Text that is not a number is 0 in arithmetic instead of an error.
+		Lexer lexer = new Lexer("BEGIN {a = \"abc\" + 1\nb = \"3x\" * 2}");
+	    Parser parser = new Parser(lexer.Lex());
+	    Interpreter interpreter = new Interpreter(parser.Parse(), Optional.empty());
+	    interpreter.InterpretProgram();
+	    Assert.assertEquals(interpreter.globalVariables.get("a").getType(), "1");
+	    Assert.assertEquals(interpreter.globalVariables.get("b").getType(), "6");
+	
+	    // Values parsed on different threads at the same time never get each other's numbers.
+	    boolean[] mixedUp = new boolean[1];
+	    Thread other = new Thread(() ->
+	    {
+	    	for (int i = 0; i < 1000000; i++)
+	    		if (new InterpreterDataType("7", true).getNumber() != 7)
+	    			mixedUp[0] = true;
+	    });
+	    other.start();
+	    for (int i = 0; i < 1000000; i++)
+	    	if (new InterpreterDataType("-3.5", true).getNumber() != -3.5)
+	    		mixedUp[0] = true;
+	    other.join();
+	    Assert.assertTrue(!mixedUp[0]);
+	}
+	
+	@Test
+	public void sharedValueTest()
+	{
+		// Comparisons hand back the same read-only values every time.
+		Interpreter interpreter = new Interpreter(new ProgramNode(), Optional.empty());
+		OperationNode less = new OperationNode(OperationNode.operations.LT, new ConstantNode("1", true), Optional.of(new ConstantNode("2", true)));
+		Assert.assertTrue(interpreter.GetIDT(less, Optional.empty()) == InterpreterDataType.TRUE);
+		Assert.assertTrue(interpreter.GetIDT(less, Optional.empty()) == InterpreterDataType.TRUE);
+		
+		boolean changed = true;
+		try
+		{
+			InterpreterDataType.TRUE.setType("0");
+		}
+		catch (IllegalArgumentException e)
+		{
+			changed = false;
+		}
+		Assert.assertTrue(!changed);
+		Assert.assertEquals(InterpreterDataType.TRUE.getType(), "1");
+		
+		// A constant is the same value on every use, and number constants follow CONVFMT.
+		ConstantNode constant = new ConstantNode("3.14159", true);
+		Assert.assertTrue(interpreter.GetIDT(constant, Optional.empty()) == constant.getValue());
+		
+		// Functions and assignments get their own copies, so the shared values never change.
+		Lexer lexer = new Lexer("function f(p) {p++\nreturn p}\nBEGIN {CONVFMT = \"%.2g\"\na = 3.14159 \"\"\nb = f(1 < 2)\nc = 1 < 2\nc++\nd = (1 < 2) + 0}");
+	    Parser parser = new Parser(lexer.Lex());
+	    interpreter = new Interpreter(parser.Parse(), Optional.empty());
+	    interpreter.InterpretProgram();
+	    Assert.assertEquals(interpreter.globalVariables.get("a").getType(), "3.1");
+	    Assert.assertEquals(interpreter.globalVariables.get("b").getType(), "2");
+	    Assert.assertEquals(interpreter.globalVariables.get("c").getType(), "2");
+	    Assert.assertEquals(interpreter.globalVariables.get("d").getType(), "1");
+	}
+	
+	@Test
+	public void printKindTest() throws IOException
+	{
+		Path file = Files.createTempFile("print", ".txt");
+		Files.writeString(file, "007 3.14159265\n");
+		Lexer lexer = new Lexer("{print $1, $2, $1 + 0, $2 * 1, \"3.14159265\"}");
+	    Parser parser = new Parser(lexer.Lex());
+	    Interpreter interpreter = new Interpreter(parser.Parse(), List.of(file), new InputOptions());
+	
+	    // Text from the input and the program is printed as it is, only numbers go through OFMT.
+	    PrintStream standardOutput = System.out;
+	    ByteArrayOutputStream output = new ByteArrayOutputStream();
+	    System.setOut(new PrintStream(output));
+	    try
+	    {
+	    	interpreter.InterpretProgram();
+	    }
+	    finally
+	    {
+	    	System.setOut(standardOutput);
+	    }
+	    Assert.assertEquals(output.toString().trim(), "007 3.14159265 7 3.14159 3.14159265");
+	
+	    Files.delete(file);
+	}
+	
+	@Test (expected = IllegalArgumentException.class)
+	public void followOneFileTest()
+	{
+		// The first followed file never ends, so a second one could never be read.
+		InputOptions options = new InputOptions();
+		options.setFollow(true);
+		new Interpreter(new ProgramNode(), List.of(Paths.get("a.log"), Paths.get("b.log")), options);
+	}
+	
 	/*
 	// Everything past this point is interpreter 3
 	@Test